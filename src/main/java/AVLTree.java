@@ -0,0 +1,330 @@
+import java.util.Comparator;
+
+/**
+ * AVL 树，每个节点左右子树的高度差不超过 1，高度不超过 1.44 log(n)，比红黑树的 2 log(n) 更矮，适合读多写少的负载。
+ *
+ * <pre>
+ * 插入  从新节点向上更新高度，最多一次单旋转或双旋转之后子树高度恢复，停止向上
+ * 删除  从被删除的位置向上更新高度，旋转之后子树高度可能仍然减少，最坏情况一路旋转到根节点，O(log n) 次旋转
+ * </pre>
+ *
+ * 和 {@link RedBlackTree} 一样，删除有 2 个子节点的节点时和后继节点交换位置，而不是复制 key，节点可以作为句柄使用。
+ */
+public class AVLTree<K extends Comparable<? super K>> implements OrderedSet<K, AVLTree.Node<K>> {
+
+    final Comparator<? super K> comparator;
+
+    transient Node<K> root;
+    transient Node<K> first;
+    transient Node<K> last;
+
+    /**
+     * The number of rotations so far, only read by benchmarks that compare balancing strategies.
+     */
+    transient long rotations;
+
+    static final class Node<K> {
+        K key;
+        Node<K> left;
+        Node<K> right;
+        Node<K> parent;
+        int height = 1;
+
+        Node(K key, Node<K> parent) {
+            this.key = key;
+            this.parent = parent;
+        }
+    }
+
+    public AVLTree() {
+        comparator = null;
+    }
+
+    public AVLTree(Comparator<? super K> comparator) {
+        this.comparator = comparator;
+    }
+
+    @Override
+    public Node<K> search(K key) {
+        if (key == null)
+            throw new NullPointerException();
+
+        Node<K> p = root;
+        while (p != null) {
+            int cmp = compare(key, p.key);
+            if (cmp < 0)
+                p = p.left;
+            else if (cmp > 0)
+                p = p.right;
+            else
+                return p;
+        }
+        return null;
+    }
+
+    @Override
+    public Node<K> insert(K key) {
+        if (key == null)
+            throw new NullPointerException();
+
+        Node<K> t = root;
+        if (t == null) {
+            root = first = last = new Node<>(key, null);
+            return root;
+        }
+
+        int cmp;
+        Node<K> parent;
+        do {
+            parent = t;
+            cmp = compare(key, t.key);
+            if (cmp < 0)
+                t = t.left;
+            else if (cmp > 0)
+                t = t.right;
+            else
+                return t;
+        } while (t != null);
+
+        Node<K> e = new Node<>(key, parent);
+        if (cmp < 0) {
+            parent.left = e;
+            if (parent == first)
+                first = e;
+        } else {
+            parent.right = e;
+            if (parent == last)
+                last = e;
+        }
+
+        // 旋转之后子树高度恢复到插入之前，或者高度没有变化时，上面的节点都不受影响
+        for (Node<K> p = parent; p != null; p = p.parent) {
+            int height = p.height;
+            p = rebalance(p);
+            if (p.height == height)
+                break;
+        }
+        return e;
+    }
+
+    @Override
+    public Node<K> remove(K key) {
+        Node<K> p = search(key);
+        if (p == null)
+            return null;
+
+        remove(p);
+        return p;
+    }
+
+    @Override
+    public void remove(Node<K> p) {
+        if (p.parent == null && p != root)
+            throw new IllegalArgumentException("node is not in the tree");
+
+        if (p == first)
+            first = successor(p);
+        if (p == last)
+            last = predecessor(p);
+        if (p.left != null && p.right != null)
+            swapWithSuccessor(p, successor(p));
+
+        Node<K> replacement = p.left != null ? p.left : p.right;
+        Node<K> parent = p.parent;
+        if (replacement != null)
+            replacement.parent = parent;
+        if (parent == null)
+            root = replacement;
+        else if (p == parent.left)
+            parent.left = replacement;
+        else
+            parent.right = replacement;
+        p.left = p.right = p.parent = null;
+
+        // 和插入不同，旋转之后子树高度仍然可能减少，需要继续向上
+        for (Node<K> x = parent; x != null; x = x.parent) {
+            int height = x.height;
+            x = rebalance(x);
+            if (x.height == height)
+                break;
+        }
+    }
+
+    @Override
+    public Node<K> getFirstNode() {
+        return first;
+    }
+
+    @Override
+    public Node<K> getLastNode() {
+        return last;
+    }
+
+    @Override
+    public Node<K> next(Node<K> node) {
+        return successor(node);
+    }
+
+    @Override
+    public Node<K> previous(Node<K> node) {
+        return predecessor(node);
+    }
+
+    @Override
+    public K keyOf(Node<K> node) {
+        return node.key;
+    }
+
+    final int compare(K k1, K k2) {
+        return comparator == null ? k1.compareTo(k2) : comparator.compare(k1, k2);
+    }
+
+    static <K> Node<K> successor(Node<K> t) {
+        if (t == null)
+            return null;
+        else if (t.right != null) {
+            Node<K> p = t.right;
+            while (p.left != null)
+                p = p.left;
+            return p;
+        } else {
+            Node<K> p = t.parent;
+            Node<K> ch = t;
+            while (p != null && ch == p.right) {
+                ch = p;
+                p = p.parent;
+            }
+            return p;
+        }
+    }
+
+    static <K> Node<K> predecessor(Node<K> t) {
+        if (t == null)
+            return null;
+        else if (t.left != null) {
+            Node<K> p = t.left;
+            while (p.right != null)
+                p = p.right;
+            return p;
+        } else {
+            Node<K> p = t.parent;
+            Node<K> ch = t;
+            while (p != null && ch == p.left) {
+                ch = p;
+                p = p.parent;
+            }
+            return p;
+        }
+    }
+
+    private static <K> int heightOf(Node<K> p) {
+        return p == null ? 0 : p.height;
+    }
+
+    private static <K> void updateHeight(Node<K> p) {
+        p.height = Math.max(heightOf(p.left), heightOf(p.right)) + 1;
+    }
+
+    /**
+     * 更新节点 p 的高度，左右子树高度差为 2 时旋转，返回旋转之后子树的根节点
+     *
+     * <pre>
+     * 左子树高 2，左子的左子树不比右子树矮    对 p 右旋
+     * 左子树高 2，左子的右子树更高            对左子左旋，再对 p 右旋
+     * 右子树高 2 时对称
+     * </pre>
+     */
+    private Node<K> rebalance(Node<K> p) {
+        int balance = heightOf(p.left) - heightOf(p.right);
+        if (balance > 1) {
+            if (heightOf(p.left.left) < heightOf(p.left.right))
+                rotateLeft(p.left);
+            return rotateRight(p);
+        } else if (balance < -1) {
+            if (heightOf(p.right.right) < heightOf(p.right.left))
+                rotateRight(p.right);
+            return rotateLeft(p);
+        }
+        updateHeight(p);
+        return p;
+    }
+
+    private Node<K> rotateLeft(Node<K> p) {
+        Node<K> r = p.right;
+        p.right = r.left;
+        if (r.left != null)
+            r.left.parent = p;
+        r.parent = p.parent;
+        if (p.parent == null)
+            root = r;
+        else if (p.parent.left == p)
+            p.parent.left = r;
+        else
+            p.parent.right = r;
+        r.left = p;
+        p.parent = r;
+        updateHeight(p);
+        updateHeight(r);
+        rotations++;
+        return r;
+    }
+
+    private Node<K> rotateRight(Node<K> p) {
+        Node<K> l = p.left;
+        p.left = l.right;
+        if (l.right != null)
+            l.right.parent = p;
+        l.parent = p.parent;
+        if (p.parent == null)
+            root = l;
+        else if (p.parent.right == p)
+            p.parent.right = l;
+        else
+            p.parent.left = l;
+        l.right = p;
+        p.parent = l;
+        updateHeight(p);
+        updateHeight(l);
+        rotations++;
+        return l;
+    }
+
+    /**
+     * 交换 p 和它的后继节点 s 在树中的位置和高度，见 {@link RedBlackTree} 中的同名方法
+     */
+    private void swapWithSuccessor(Node<K> p, Node<K> s) {
+        Node<K> parent = p.parent;
+        Node<K> sParent = s.parent;
+        Node<K> sRight = s.right;
+
+        s.left = p.left;
+        s.left.parent = s;
+        s.parent = parent;
+        if (parent == null)
+            root = s;
+        else if (p == parent.left)
+            parent.left = s;
+        else
+            parent.right = s;
+
+        if (sParent == p) {
+            s.right = p;
+            p.parent = s;
+        } else {
+            s.right = p.right;
+            s.right.parent = s;
+            sParent.left = p;
+            p.parent = sParent;
+        }
+
+        p.left = null;
+        p.right = sRight;
+        if (sRight != null)
+            sRight.parent = p;
+
+        int height = p.height;
+        p.height = s.height;
+        s.height = height;
+    }
+
+}
@@ -0,0 +1,124 @@
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+
+/**
+ * 每个节点额外保存其子树所有 key 的聚合值的红黑树，聚合方式由 {@code identity} 和满足结合律的 {@code combine} 组成一个幺半群，
+ * 例如求和、计数、最小值或者最大值。
+ *
+ * <pre>
+ * 节点的聚合值 = combine(combine(左子树聚合值, mapper(key)), 右子树聚合值)
+ *
+ * 区间 [lo, hi] 的聚合值只需要沿着 2 条边界路径向下查找：
+ *   先找到第一个落在区间内的分叉节点 p
+ *   左边界路径上，大于等于 lo 的节点连同其右子树整体计入结果
+ *   右边界路径上，小于等于 hi 的节点连同其左子树整体计入结果
+ * </pre>
+ *
+ * combine 不要求满足交换律，结果总是按 key 从小到大的顺序组合。
+ */
+public class AggregateTree<K extends Comparable<? super K>, A> extends RedBlackTree<K> {
+
+    private final Function<? super K, ? extends A> mapper;
+    private final A identity;
+    private final BinaryOperator<A> combine;
+
+    static final class AggregateNode<K, A> extends Node<K> {
+
+        /**
+         * 以此节点为根的子树的聚合值
+         */
+        A aggregate;
+
+        AggregateNode(K key, Node<K> parent) {
+            super(key, parent);
+        }
+    }
+
+    /**
+     * @param mapper   maps every key to the value being aggregated
+     * @param identity the identity value of {@code combine}
+     * @param combine  an associative function combining two aggregates, left operand holds the smaller keys
+     */
+    public AggregateTree(Function<? super K, ? extends A> mapper, A identity, BinaryOperator<A> combine) {
+        this.mapper = mapper;
+        this.identity = identity;
+        this.combine = combine;
+    }
+
+    /**
+     * @return the aggregate of all keys in the tree.
+     */
+    public A aggregate() {
+        return aggregateOf(root);
+    }
+
+    /**
+     * @return the aggregate of all keys between {@code lo} and {@code hi} inclusive, or the identity value if there is
+     * no such key.
+     * @throws NullPointerException if either bound is null
+     */
+    public A aggregate(K lo, K hi) {
+        if (lo == null || hi == null)
+            throw new NullPointerException();
+        if (compare(lo, hi) > 0)
+            return identity;
+
+        Node<K> p = root;
+        while (p != null) {
+            if (compare(hi, p.key) < 0)
+                p = p.left;
+            else if (compare(lo, p.key) > 0)
+                p = p.right;
+            else
+                break;
+        }
+        if (p == null)
+            return identity;
+
+        A left = identity;
+        for (Node<K> q = p.left; q != null; ) {
+            if (compare(lo, q.key) <= 0) {
+                left = combine.apply(combine.apply(mapper.apply(q.key), aggregateOf(q.right)), left);
+                q = q.left;
+            } else {
+                q = q.right;
+            }
+        }
+
+        A right = identity;
+        for (Node<K> q = p.right; q != null; ) {
+            if (compare(hi, q.key) >= 0) {
+                right = combine.apply(right, combine.apply(aggregateOf(q.left), mapper.apply(q.key)));
+                q = q.right;
+            } else {
+                q = q.left;
+            }
+        }
+
+        return combine.apply(combine.apply(left, mapper.apply(p.key)), right);
+    }
+
+    @SuppressWarnings("unchecked")
+    private A aggregateOf(Node<K> p) {
+        return p == null ? identity : ((AggregateNode<K, A>) p).aggregate;
+    }
+
+    @Override
+    Node<K> newNode(K key, Node<K> parent) {
+        return new AggregateNode<K, A>(key, parent);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    void augment(Node<K> x) {
+        A value = combine.apply(combine.apply(aggregateOf(x.left), mapper.apply(x.key)), aggregateOf(x.right));
+        ((AggregateNode<K, A>) x).aggregate = value;
+    }
+
+    @Override
+    void augmentPath(Node<K> x) {
+        for (; x != null; x = x.parent)
+            augment(x);
+    }
+
+}
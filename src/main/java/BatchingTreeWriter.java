@@ -0,0 +1,291 @@
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * 红黑树的单写线程批量修改前端。
+ *
+ * <pre>
+ * 调用方线程只把 insert/remove 操作放入队列并立即得到一个 {@link CompletableFuture}，不会竞争红黑树的锁，
+ * 唯一的写线程从队列中批量取出操作：
+ *
+ *   1. 阻塞等待第一个操作
+ *   2. 在 maxDelay 时间内继续收集，最多 maxBatchSize 个操作
+ *   3. 将这一批操作按 key 稳定排序，同一个 key 的多个操作仍然保持提交的顺序
+ *   4. 在写锁内一次性应用整批操作，读线程只会看到整批操作之前或之后的树
+ *   5. 释放写锁之后再完成每个操作的 future
+ * </pre>
+ *
+ * 排序之后每个操作以上一个操作的节点为起点 ({@link RedBlackTree#insert(Comparable, RedBlackTree.Node)})，
+ * 从两个 key 的最近公共祖先附近开始下降，相邻 key 共享的上层路径不再重复比较。一批 k 个 key 均匀分布在 n 个 key 的树中时，
+ * 每个 key 上移和下降大约各需要 log(n/k) 次比较，只有 k 相对 n 足够大时才比从根节点下降的 log(n) 次少。
+ * 排序也保证同一个 key 的多个操作按提交顺序生效。比较器或者 compareTo 在排序时抛出异常时，这一批按提交顺序逐个应用，
+ * 抛出异常的操作各自以原来的异常失败，其他操作照常完成，写线程继续运行。
+ * 调用方阻塞在 future 上的时间很短，适合大量轻量级线程同时提交。
+ *
+ * {@link #compact()} 也由写线程在两批操作之间执行：写线程是唯一修改树的线程，复制节点时不需要任何锁，读线程照常读取，
+ * 只有最后替换根节点时持有写锁。
+ */
+public class BatchingTreeWriter<K extends Comparable<? super K>> implements AutoCloseable {
+
+    private static final long CLOSE_CHECK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final RedBlackTree<K> tree;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+
+    private final BlockingQueue<Mutation<K>> queue = new LinkedBlockingQueue<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Thread writer;
+    private final AtomicReference<CompletableFuture<Void>> compaction = new AtomicReference<>();
+    private volatile boolean closed;
+
+    private static final class Mutation<K> {
+
+        final K key;
+        final boolean insert;
+        final CompletableFuture<Boolean> future = new CompletableFuture<>();
+
+        Mutation(K key, boolean insert) {
+            this.key = key;
+            this.insert = insert;
+        }
+    }
+
+    /**
+     * @param tree         the tree owned by this writer, it must not be modified by any other thread afterwards
+     * @param maxBatchSize the max number of operations applied under one write lock
+     * @param maxDelay     the max time to wait for more operations once the first operation of a batch is taken
+     * @throws IllegalArgumentException if {@code maxBatchSize} is not positive or {@code maxDelay} is negative
+     */
+    public BatchingTreeWriter(RedBlackTree<K> tree, int maxBatchSize, long maxDelay, TimeUnit unit) {
+        if (maxBatchSize <= 0)
+            throw new IllegalArgumentException("maxBatchSize: " + maxBatchSize);
+        if (maxDelay < 0)
+            throw new IllegalArgumentException("maxDelay: " + maxDelay);
+
+        this.tree = tree;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = unit.toNanos(maxDelay);
+        this.writer = new Thread(this::drain, "red-black-tree-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * @return a future completed with {@code true} if the key was added, {@code false} if it was already present.
+     * @throws NullPointerException if the specified key is null
+     */
+    public CompletableFuture<Boolean> insert(K key) {
+        return submit(key, true);
+    }
+
+    /**
+     * @return a future completed with {@code true} if the key was removed, {@code false} if it was not present.
+     * @throws NullPointerException if the specified key is null
+     */
+    public CompletableFuture<Boolean> remove(K key) {
+        return submit(key, false);
+    }
+
+    private CompletableFuture<Boolean> submit(K key, boolean insert) {
+        if (key == null)
+            throw new NullPointerException();
+
+        Mutation<K> mutation = new Mutation<>(key, insert);
+        if (!closed) {
+            queue.add(mutation);
+            // close() 可能发生在上面的检查之后，写线程已经退出时要把操作从队列中撤回
+            if (!closed || !queue.remove(mutation))
+                return mutation.future;
+        }
+        mutation.future.completeExceptionally(new IllegalStateException("writer is closed"));
+        return mutation.future;
+    }
+
+    /**
+     * Asks the writer thread to rebuild the tree with {@link RedBlackTree#compact()} between two batches. The nodes
+     * are copied without blocking readers, and the new root is swapped in under the write lock.
+     *
+     * @return a future completed when the compacted tree is visible to readers, the same future is returned to every
+     * caller until the pending compaction is done.
+     */
+    public CompletableFuture<Void> compact() {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        while (true) {
+            CompletableFuture<Void> pending = compaction.get();
+            if (pending != null)
+                return pending;
+            if (closed) {
+                future.completeExceptionally(new IllegalStateException("writer is closed"));
+                return future;
+            }
+            if (compaction.compareAndSet(null, future)) {
+                // 和 submit 一样，close() 可能发生在上面的检查之后，写线程已经退出时要撤回
+                if (closed && compaction.compareAndSet(future, null))
+                    future.completeExceptionally(new IllegalStateException("writer is closed"));
+                return future;
+            }
+        }
+    }
+
+    public boolean contains(K key) {
+        return read(t -> t.search(key) != null);
+    }
+
+    /**
+     * Runs {@code reader} against the tree under the read lock. Nodes must not escape {@code reader}, they may be
+     * modified by the next batch or replaced by a compaction.
+     */
+    public <R> R read(Function<? super RedBlackTree<K>, R> reader) {
+        lock.readLock().lock();
+        try {
+            return reader.apply(tree);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Stops accepting new operations, waits until every operation already submitted is applied and the writer thread
+     * exits. An interrupt does not cut the wait short, the interrupt status is restored after the writer thread exits.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        boolean interrupted = false;
+        while (true) {
+            try {
+                writer.join();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+    }
+
+    private void drain() {
+        List<Mutation<K>> batch = new ArrayList<>(maxBatchSize);
+        List<Mutation<K>> sorted = new ArrayList<>(maxBatchSize);
+        Comparator<Mutation<K>> byKey = (a, b) -> tree.compare(a.key, b.key);
+        try {
+            while (true) {
+                Mutation<K> first = queue.poll(CLOSE_CHECK_NANOS, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    compactIfRequested();
+                    if (closed && queue.isEmpty())
+                        return;
+                    continue;
+                }
+
+                batch.add(first);
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (batch.size() < maxBatchSize) {
+                    Mutation<K> next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null)
+                        break;
+                    batch.add(next);
+                }
+
+                // 在副本上排序，排序中途抛出异常时 batch 仍然是完整的提交顺序
+                sorted.addAll(batch);
+                try {
+                    sorted.sort(byKey);
+                } catch (RuntimeException e) {
+                    sorted.clear();
+                    sorted.addAll(batch);
+                }
+                apply(sorted);
+                sorted.clear();
+                batch.clear();
+                compactIfRequested();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // 中断或者异常退出时，不让提交者永远等待，之后的提交立即被拒绝
+            closed = true;
+            for (Mutation<K> m : batch)
+                m.future.completeExceptionally(new IllegalStateException("writer stopped"));
+            for (Mutation<K> m; (m = queue.poll()) != null; )
+                m.future.completeExceptionally(new IllegalStateException("writer stopped"));
+            CompletableFuture<Void> pending = compaction.getAndSet(null);
+            if (pending != null)
+                pending.completeExceptionally(new IllegalStateException("writer stopped"));
+        }
+    }
+
+    private void compactIfRequested() {
+        CompletableFuture<Void> future = compaction.getAndSet(null);
+        if (future == null)
+            return;
+
+        RedBlackTree.Node<K> root;
+        try {
+            root = tree.copyBreadthFirst();
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            return;
+        }
+
+        RedBlackTree.Node<K> old = tree.root;
+        lock.writeLock().lock();
+        try {
+            tree.setRoot(root);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        // 读线程只在读锁内访问节点，替换之后不会再有读线程访问旧节点
+        RedBlackTree.unlinkAll(old);
+        future.complete(null);
+    }
+
+    private void apply(List<Mutation<K>> batch) {
+        Object[] results = new Object[batch.size()];
+        lock.writeLock().lock();
+        try {
+            RedBlackTree.Node<K> hint = null;
+            for (int i = 0; i < results.length; i++) {
+                Mutation<K> m = batch.get(i);
+                try {
+                    if (m.insert) {
+                        long n = tree.insertions;
+                        hint = tree.insert(m.key, hint);
+                        results[i] = tree.insertions != n;
+                    } else {
+                        RedBlackTree.Node<K> p = tree.search(m.key, hint);
+                        if (p != null) {
+                            // 删除不会移动其他节点的 key，前驱节点删除之后仍然可以作为下一个 key 的起点
+                            hint = tree.previous(p);
+                            tree.remove(p);
+                        }
+                        results[i] = p != null;
+                    }
+                } catch (RuntimeException e) {
+                    results[i] = e;
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        for (int i = 0; i < results.length; i++) {
+            Mutation<K> m = batch.get(i);
+            if (results[i] instanceof RuntimeException)
+                m.future.completeExceptionally((RuntimeException) results[i]);
+            else
+                m.future.complete((Boolean) results[i]);
+        }
+    }
+
+}
@@ -0,0 +1,144 @@
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 按过期时间排序的缓存，用红黑树按 (deadline, seq) 排序所有条目，HashMap 按 key 查找条目。
+ *
+ * <pre>
+ * put / touch     O(log n)，touch 直接删除旧的 deadline 节点再插入新的 deadline
+ * get             O(1)
+ * expireUpTo(now) 从最小的 deadline 开始依次删除，直到 deadline 大于 now，
+ *                 只访问过期的条目，代价和过期条目数 k 相关，和缓存大小无关，O(k log n)
+ * </pre>
+ *
+ * deadline 的单位由调用方决定，例如 {@link System#currentTimeMillis()} 或者 {@link System#nanoTime()}，
+ * 只要 put/touch 和 expireUpTo 使用相同的时钟。seq 是递增的序号，保证 deadline 相同的条目在红黑树中也是不同的 key。
+ * 和红黑树一样，不是线程安全的。
+ */
+public class ExpiringCache<K, V> {
+
+    private final RedBlackTree<Deadline<K>> deadlines = new RedBlackTree<>();
+    private final Map<K, Entry<K, V>> entries = new HashMap<>();
+    private long seq;
+
+    static final class Deadline<K> implements Comparable<Deadline<K>> {
+
+        final long time;
+        final long seq;
+        final K key;
+
+        Deadline(long time, long seq, K key) {
+            this.time = time;
+            this.seq = seq;
+            this.key = key;
+        }
+
+        @Override
+        public int compareTo(Deadline<K> o) {
+            int cmp = Long.compare(time, o.time);
+            return cmp != 0 ? cmp : Long.compare(seq, o.seq);
+        }
+    }
+
+    private static final class Entry<K, V> {
+
+        V value;
+        RedBlackTree.Node<Deadline<K>> deadline; // 红黑树删除节点时不会移动 key，直接保存节点，删除时不需要查找
+
+        Entry(V value, RedBlackTree.Node<Deadline<K>> deadline) {
+            this.value = value;
+            this.deadline = deadline;
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the value of {@code key}, or {@code null} if there is no such key. Entries past their deadline are
+     * returned until they are removed by {@link #expireUpTo}.
+     */
+    public V get(K key) {
+        Entry<K, V> e = entries.get(key);
+        return e == null ? null : e.value;
+    }
+
+    /**
+     * Associates {@code value} with {@code key} until {@code deadline}, replacing the value and deadline of an
+     * existing entry.
+     *
+     * @return the previous value of {@code key}, or {@code null} if there was no such key.
+     */
+    public V put(K key, V value, long deadline) {
+        Entry<K, V> e = entries.get(key);
+        if (e == null) {
+            entries.put(key, new Entry<>(value, schedule(key, deadline)));
+            return null;
+        }
+
+        V old = e.value;
+        e.value = value;
+        reschedule(e, key, deadline);
+        return old;
+    }
+
+    /**
+     * Moves the deadline of {@code key} to {@code deadline}, for example when a session is accessed.
+     *
+     * @return {@code false} if there is no such key.
+     */
+    public boolean touch(K key, long deadline) {
+        Entry<K, V> e = entries.get(key);
+        if (e == null)
+            return false;
+        reschedule(e, key, deadline);
+        return true;
+    }
+
+    /**
+     * @return the value of the removed entry, or {@code null} if there was no such key.
+     */
+    public V remove(K key) {
+        Entry<K, V> e = entries.remove(key);
+        if (e == null)
+            return null;
+        deadlines.remove(e.deadline);
+        return e.value;
+    }
+
+    /**
+     * @return the earliest deadline, or {@link Long#MAX_VALUE} if the cache is empty.
+     */
+    public long nextDeadline() {
+        RedBlackTree.Node<Deadline<K>> first = deadlines.getFirstNode();
+        return first == null ? Long.MAX_VALUE : first.key.time;
+    }
+
+    /**
+     * Removes all entries whose deadline is not after {@code now}.
+     *
+     * @return the removed entries in deadline order.
+     */
+    public Map<K, V> expireUpTo(long now) {
+        Map<K, V> result = new LinkedHashMap<>();
+        for (Deadline<K> d = deadlines.peekFirst(); d != null && d.time <= now; d = deadlines.peekFirst()) {
+            deadlines.pollFirst();
+            result.put(d.key, entries.remove(d.key).value);
+        }
+        return result;
+    }
+
+    private RedBlackTree.Node<Deadline<K>> schedule(K key, long deadline) {
+        return deadlines.insert(new Deadline<>(deadline, seq++, key));
+    }
+
+    private void reschedule(Entry<K, V> e, K key, long deadline) {
+        if (e.deadline.key.time == deadline)
+            return;
+        deadlines.remove(e.deadline);
+        e.deadline = schedule(key, deadline);
+    }
+
+}
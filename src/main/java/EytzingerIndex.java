@@ -0,0 +1,157 @@
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.function.ToLongFunction;
+
+/**
+ * 红黑树的只读查询索引，将中序遍历的 key 按 Eytzinger (BFS) 顺序写入文件，读取时直接 mmap 文件。
+ *
+ * <pre>
+ * 文件格式，所有数值均为 big-endian long：
+ *
+ *   slot 0       : 高 32 位为 MAGIC，低 32 位为 key 的个数 n
+ *   slot 1 .. n  : Eytzinger 顺序的 key，slot k 的左子为 2k，右子为 2k + 1
+ *
+ * 中序数组 [1, 2, 3, 4, 5, 6, 7] 写入后的顺序为 [4, 2, 6, 1, 3, 5, 7]
+ * </pre>
+ *
+ * 查找时每一层只做一次比较，根据比较结果计算下一个下标而不用分支跳转，前几层的 key 集中在文件头部，
+ * 会一直留在 CPU 缓存中。
+ */
+public class EytzingerIndex {
+
+    private static final int MAGIC = 0x45595458; // "EYTX"
+
+    private static final int MAX_SIZE = Integer.MAX_VALUE / Long.BYTES - 1;
+
+    private final LongBuffer keys;
+
+    private final int size;
+
+    private EytzingerIndex(LongBuffer keys, int size) {
+        this.keys = keys;
+        this.size = size;
+    }
+
+    /**
+     * 将红黑树中的 key 按 Eytzinger 顺序写入文件 {@code path}，已存在的文件会被覆盖。
+     *
+     * @param tree   exported tree, it is not modified
+     * @param toLong maps every key to the long stored in the index, must preserve the key order
+     * @throws IllegalArgumentException if the tree has too many keys to be mapped
+     */
+    public static <K extends Comparable<? super K>> void export(RedBlackTree<K> tree, ToLongFunction<? super K> toLong, Path path) throws IOException {
+        int n = 0;
+        for (RedBlackTree.Node<K> p = tree.getFirstNode(); p != null; p = RedBlackTree.successor(p)) {
+            if (++n > MAX_SIZE)
+                throw new IllegalArgumentException("too many keys: " + n);
+        }
+
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw");
+             FileChannel channel = file.getChannel()) {
+            long length = (n + 1L) * Long.BYTES;
+            file.setLength(length);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+            LongBuffer slots = buffer.asLongBuffer();
+            slots.put(0, ((long) MAGIC << 32) | n);
+
+            Cursor<K> cursor = new Cursor<>(tree.getFirstNode(), toLong);
+            fill(slots, 1, n, cursor);
+            buffer.force();
+        }
+    }
+
+    /**
+     * 中序遍历 Eytzinger 下标，同时按 successor 顺序遍历红黑树，依次把 key 放入对应的 slot。
+     */
+    private static <K> void fill(LongBuffer slots, int k, int n, Cursor<K> cursor) {
+        if (k > n) return;
+        fill(slots, 2 * k, n, cursor);
+        slots.put(k, cursor.next());
+        fill(slots, 2 * k + 1, n, cursor);
+    }
+
+    private static final class Cursor<K> {
+
+        RedBlackTree.Node<K> node;
+        final ToLongFunction<? super K> toLong;
+
+        Cursor(RedBlackTree.Node<K> node, ToLongFunction<? super K> toLong) {
+            this.node = node;
+            this.toLong = toLong;
+        }
+
+        long next() {
+            long v = toLong.applyAsLong(node.key);
+            node = RedBlackTree.successor(node);
+            return v;
+        }
+    }
+
+    /**
+     * mmap 只读打开 {@link #export} 写出的索引文件，文件内容不会被复制到堆内存中。
+     *
+     * @throws IllegalArgumentException if the file is not an index file
+     */
+    public static EytzingerIndex open(Path path) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "r");
+             FileChannel channel = file.getChannel()) {
+            long length = channel.size();
+            if (length < Long.BYTES || length % Long.BYTES != 0)
+                throw new IllegalArgumentException("not an eytzinger index file: " + path);
+
+            LongBuffer slots = channel.map(FileChannel.MapMode.READ_ONLY, 0, length).asLongBuffer();
+            long header = slots.get(0);
+            int n = (int) header;
+            if ((int) (header >>> 32) != MAGIC || n < 0 || n + 1L != length / Long.BYTES)
+                throw new IllegalArgumentException("not an eytzinger index file: " + path);
+
+            return new EytzingerIndex(slots, n);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(long key) {
+        int k = lowerBound(key);
+        return k != 0 && keys.get(k) == key;
+    }
+
+    /**
+     * @return the greatest key less than or equal to {@code key}, or {@code null} if there is no such key.
+     */
+    public Long floor(long key) {
+        int k = 1;
+        while (k <= size)
+            k = 2 * k + (keys.get(k) <= key ? 1 : 0);
+        // 最后一次向右走的节点就是 floor，去掉末尾的 0 (向左) 和一个 1 (向右)
+        k >>>= Integer.numberOfTrailingZeros(k) + 1;
+        return k == 0 ? null : keys.get(k);
+    }
+
+    /**
+     * @return the least key greater than or equal to {@code key}, or {@code null} if there is no such key.
+     */
+    public Long ceiling(long key) {
+        int k = lowerBound(key);
+        return k == 0 ? null : keys.get(k);
+    }
+
+    /**
+     * 返回第一个不小于 key 的 slot 下标，没有则返回 0。
+     */
+    private int lowerBound(long key) {
+        int k = 1;
+        while (k <= size)
+            k = 2 * k + (keys.get(k) < key ? 1 : 0);
+        // 最后一次向左走的节点就是 ceiling，去掉末尾的 1 (向右) 和一个 0 (向左)
+        k >>>= Integer.numberOfTrailingZeros(~k) + 1;
+        return k;
+    }
+
+}
@@ -0,0 +1,223 @@
+import java.util.Comparator;
+
+/**
+ * 带有哈希索引的红黑树，在红黑树之外额外维护一个从 key 到节点的开放寻址哈希表。
+ *
+ * <pre>
+ * search / 重复的 insert / remove 的查找部分   O(1)，只查哈希表
+ * successor / predecessor / 首尾节点等有序操作  仍然使用红黑树
+ *
+ * 哈希表使用线性探测，容量为 2 的幂，装载因子不超过 1/2，删除时把后面同一探测链上的节点前移填补空位，不使用墓碑。
+ * </pre>
+ *
+ * 红黑树删除节点时不会在节点之间移动 key，每个索引项始终指向同一个节点，删除时只需要删除被删除节点的索引项。
+ *
+ * key 的 {@link Object#equals} 和 {@link Object#hashCode} 必须和树的排序一致，即比较结果为 0 的两个 key 相等。
+ * 不一致时按 key 查找只能找到插入时使用的那个 key，但哈希表和 size 仍然和红黑树中的节点一一对应。
+ */
+public class HashIndexedRedBlackTree<K extends Comparable<? super K>> extends RedBlackTree<K> {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private Node<K>[] table = newTable(INITIAL_CAPACITY);
+    private int size;
+
+    public HashIndexedRedBlackTree() {
+    }
+
+    public HashIndexedRedBlackTree(Comparator<? super K> comparator) {
+        super(comparator);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return Returns this entry for the given key
+     * @throws NullPointerException if the specified key is null
+     */
+    @Override
+    public Node<K> search(K key) {
+        if (key == null)
+            throw new NullPointerException();
+
+        Node<K>[] tab = table;
+        int mask = tab.length - 1;
+        for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+            Node<K> p = tab[i];
+            if (p == null || key.equals(p.key))
+                return p;
+        }
+    }
+
+    /**
+     * 每个 key 都是 O(1) 的哈希查找，比按批次遍历红黑树更快，所以逐个查找，也不要求 keys 有序
+     */
+    @Override
+    public void searchAll(K[] keys, Node<K>[] results) {
+        if (results.length < keys.length)
+            throw new IllegalArgumentException("results.length " + results.length + " < keys.length " + keys.length);
+        for (int i = 0; i < keys.length; i++)
+            results[i] = search(keys[i]);
+    }
+
+    @Override
+    public boolean containsAll(K[] keys) {
+        for (K key : keys) {
+            if (search(key) == null)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * @param key key of entry
+     * @return the exist entry or new entry with key {@code key}.
+     * @throws NullPointerException if the specified key is null
+     */
+    @Override
+    public Node<K> insert(K key) {
+        Node<K> p = search(key);
+        if (p != null)
+            return p;
+
+        long n = insertions;
+        return index(super.insert(key), n);
+    }
+
+    @Override
+    public Node<K> insert(K key, Node<K> hint) {
+        Node<K> p = search(key);
+        if (p != null)
+            return p;
+
+        long n = insertions;
+        return index(super.insert(key, hint), n);
+    }
+
+    /**
+     * 比较器和 equals 不一致时 (例如 {@link String#CASE_INSENSITIVE_ORDER})，哈希表中找不到的 key 在红黑树中可能已经存在，
+     * 只有红黑树确实链接了新节点 ({@code insertions} 增加) 时才加入哈希表，否则同一个节点会被索引两次，size 也会多计
+     */
+    private Node<K> index(Node<K> p, long insertions) {
+        if (this.insertions == insertions)
+            return p;
+        if (++size > table.length >> 1)
+            resize(table.length << 1);
+        put(table, p);
+        return p;
+    }
+
+    /**
+     * 按 key 删除时，super.remove 通过 search 从哈希表中找到节点之后也会调用此方法
+     */
+    @Override
+    public void remove(Node<K> node) {
+        super.remove(node);
+        unindex(node);
+    }
+
+    @Override
+    public K pollFirst() {
+        Node<K> p = getFirstNode();
+        K key = super.pollFirst();
+        if (p != null)
+            unindex(p);
+        return key;
+    }
+
+    @Override
+    public K pollLast() {
+        Node<K> p = getLastNode();
+        K key = super.pollLast();
+        if (p != null)
+            unindex(p);
+        return key;
+    }
+
+    /**
+     * 整棵树被重新链接 (例如 {@link RedBlackTreeSets} 的集合运算) 之后重建哈希表，代价 O(n)
+     */
+    @Override
+    void setRoot(Node<K> root) {
+        super.setRoot(root);
+        int n = 0;
+        for (Node<K> p = getFirstNode(); p != null; p = successor(p))
+            n++;
+
+        int capacity = INITIAL_CAPACITY;
+        while (capacity >> 1 < n)
+            capacity <<= 1;
+        Node<K>[] tab = newTable(capacity);
+        for (Node<K> p = getFirstNode(); p != null; p = successor(p))
+            put(tab, p);
+        table = tab;
+        size = n;
+    }
+
+    /**
+     * 在红黑树的估算值上加上哈希表数组本身，数组的容量至少是 size 的 2 倍，每个 key 多占用 2 到 4 个引用
+     */
+    @Override
+    public long footprintEstimate() {
+        return super.footprintEstimate() + ObjectLayout.referenceArraySize(table.length);
+    }
+
+    /**
+     * 按节点本身而不是 key 的 equals 查找索引项，即使两个节点的 key 相等也只删除 node 自己的索引项
+     */
+    private void unindex(Node<K> node) {
+        Node<K>[] tab = table;
+        int mask = tab.length - 1;
+        int i = hash(node.key) & mask;
+        while (tab[i] != node) {
+            if (tab[i] == null)
+                throw new IllegalStateException("node of " + node.key + " is not in the hash index");
+            i = (i + 1) & mask;
+        }
+
+        // 把同一探测链上后面的节点前移，保证查找时不会遇到提前出现的空位
+        for (int j = (i + 1) & mask; tab[j] != null; j = (j + 1) & mask) {
+            int home = hash(tab[j].key) & mask;
+            if (((j - home) & mask) >= ((j - i) & mask)) {
+                tab[i] = tab[j];
+                i = j;
+            }
+        }
+        tab[i] = null;
+        size--;
+    }
+
+    private static <K> void put(Node<K>[] tab, Node<K> node) {
+        int mask = tab.length - 1;
+        int i = hash(node.key) & mask;
+        while (tab[i] != null)
+            i = (i + 1) & mask;
+        tab[i] = node;
+    }
+
+    private void resize(int capacity) {
+        Node<K>[] tab = newTable(capacity);
+        for (Node<K> p : table) {
+            if (p != null)
+                put(tab, p);
+        }
+        table = tab;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K> Node<K>[] newTable(int capacity) {
+        return (Node<K>[]) new Node<?>[capacity];
+    }
+
+    /**
+     * 和 {@link java.util.HashMap} 一样把高位扩散到低位，再乘以黄金分割数打散，最后把乘积的高位再扩散到低位
+     */
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        h = (h ^ (h >>> 16)) * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+}
@@ -0,0 +1,152 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 基于红黑树的区间树，每个节点保存一个闭区间 [low, high]，并额外保存以该节点为根的子树中所有区间的最大 high 值。
+ *
+ * <pre>
+ * 区间按 low 排序，low 相同再按 high 排序，完全相同的区间只保存一份。
+ *
+ * 查询和 [a, b] 重叠的区间时：
+ *   子树的 max 小于 a，整个子树都不可能重叠，直接跳过
+ *   节点的 low 大于 b，节点本身和右子树都不可能重叠，只需要继续查左子树
+ * </pre>
+ *
+ * max 值在节点插入和删除后沿着父节点路径一直更新到根节点，旋转时只需要更新参与旋转的 2 个节点，
+ * 参见 {@link RedBlackTree#augment} 和 {@link RedBlackTree#augmentPath}。
+ */
+public class IntervalTree<K extends Comparable<? super K>> extends RedBlackTree<IntervalTree.Interval<K>> {
+
+    public static final class Interval<K extends Comparable<? super K>> implements Comparable<Interval<K>> {
+
+        final K low;
+        final K high;
+
+        /**
+         * @throws NullPointerException     if either endpoint is null
+         * @throws IllegalArgumentException if {@code low} is greater than {@code high}
+         */
+        public Interval(K low, K high) {
+            if (low == null || high == null)
+                throw new NullPointerException();
+            if (low.compareTo(high) > 0)
+                throw new IllegalArgumentException("low " + low + " is greater than high " + high);
+            this.low = low;
+            this.high = high;
+        }
+
+        public K getLow() {
+            return low;
+        }
+
+        public K getHigh() {
+            return high;
+        }
+
+        public boolean overlaps(K a, K b) {
+            return low.compareTo(b) <= 0 && a.compareTo(high) <= 0;
+        }
+
+        @Override
+        public int compareTo(Interval<K> o) {
+            int cmp = low.compareTo(o.low);
+            return cmp != 0 ? cmp : high.compareTo(o.high);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Interval)) return false;
+            Interval<?> that = (Interval<?>) o;
+            return low.equals(that.low) && high.equals(that.high);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * low.hashCode() + high.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return "[" + low + ", " + high + "]";
+        }
+    }
+
+    static final class IntervalNode<K extends Comparable<? super K>> extends Node<Interval<K>> {
+
+        /**
+         * 子树中所有区间的最大 high 值
+         */
+        K max;
+
+        IntervalNode(Interval<K> key, Node<Interval<K>> parent) {
+            super(key, parent);
+            this.max = key.high;
+        }
+    }
+
+    public Node<Interval<K>> insert(K low, K high) {
+        return insert(new Interval<>(low, high));
+    }
+
+    public Node<Interval<K>> remove(K low, K high) {
+        return remove(new Interval<>(low, high));
+    }
+
+    /**
+     * @return all intervals overlapping the closed interval [a, b], in ascending order.
+     * @throws NullPointerException     if either endpoint is null
+     * @throws IllegalArgumentException if {@code a} is greater than {@code b}
+     */
+    public List<Interval<K>> overlapping(K a, K b) {
+        new Interval<>(a, b); // validates the query range
+        List<Interval<K>> result = new ArrayList<>();
+        overlapping(root, a, b, result);
+        return result;
+    }
+
+    /**
+     * @return all intervals containing {@code point}, in ascending order.
+     */
+    public List<Interval<K>> stabbing(K point) {
+        return overlapping(point, point);
+    }
+
+    private void overlapping(Node<Interval<K>> node, K a, K b, List<Interval<K>> result) {
+        while (node != null && maxOf(node).compareTo(a) >= 0) {
+            overlapping(node.left, a, b, result);
+            Interval<K> interval = node.key;
+            if (interval.low.compareTo(b) > 0)
+                return;
+            if (a.compareTo(interval.high) <= 0)
+                result.add(interval);
+            node = node.right;
+        }
+    }
+
+    private static <K extends Comparable<? super K>> K maxOf(Node<Interval<K>> p) {
+        return ((IntervalNode<K>) p).max;
+    }
+
+    @Override
+    Node<Interval<K>> newNode(Interval<K> key, Node<Interval<K>> parent) {
+        return new IntervalNode<>(key, parent);
+    }
+
+    @Override
+    void augment(Node<Interval<K>> x) {
+        K max = x.key.high;
+        if (x.left != null && maxOf(x.left).compareTo(max) > 0)
+            max = maxOf(x.left);
+        if (x.right != null && maxOf(x.right).compareTo(max) > 0)
+            max = maxOf(x.right);
+        ((IntervalNode<K>) x).max = max;
+    }
+
+    @Override
+    void augmentPath(Node<Interval<K>> x) {
+        for (; x != null; x = x.parent)
+            augment(x);
+    }
+
+}
@@ -0,0 +1,78 @@
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+/**
+ * 按 HotSpot 的对象布局估算对象的浅层大小 (shallow size)，不包括引用指向的其他对象。
+ *
+ * <pre>
+ * 对象头: mark word 8 字节 + class pointer (压缩时 4 字节，否则 8 字节)
+ * 引用:   开启压缩指针 (UseCompressedOops) 时 4 字节，否则 8 字节
+ * 基本类型按各自的宽度计算，整个对象按 8 字节对齐
+ * 数组:   对象头 + 4 字节的长度 + 元素，同样按 8 字节对齐
+ *
+ * 以 64 位 JVM 上的 RedBlackTree.Node 为例：
+ *   压缩指针:   12 + 4 * 4 (key, left, right, parent) + 1 (color) = 29 -&gt; 32 字节
+ *   非压缩指针: 12 + 8 * 4 + 1 = 45 -&gt; 48 字节，再关闭压缩类指针时 16 + 8 * 4 + 1 = 49 -&gt; 56 字节
+ * </pre>
+ *
+ * 字段重排和子类的字段间隙会让实际大小略有偏差，可以用 {@code -XX:-UseCompressedOops} 等参数运行
+ * FootprintBenchmark 对比实测值。
+ */
+public final class ObjectLayout {
+
+    public static final boolean COMPRESSED_OOPS = vmOption("UseCompressedOops");
+    public static final boolean COMPRESSED_CLASS_POINTERS = vmOption("UseCompressedClassPointers");
+
+    public static final int REFERENCE_SIZE = COMPRESSED_OOPS ? 4 : 8;
+    public static final int HEADER_SIZE = COMPRESSED_CLASS_POINTERS ? 12 : 16;
+
+    private ObjectLayout() {
+    }
+
+    /**
+     * 读取 HotSpot 的 VM 参数，非 HotSpot 的 JVM 上按 64 位 JVM 默认开启压缩指针处理
+     */
+    private static boolean vmOption(String name) {
+        try {
+            com.sun.management.HotSpotDiagnosticMXBean bean = ManagementFactory.getPlatformMXBean(com.sun.management.HotSpotDiagnosticMXBean.class);
+            return Boolean.parseBoolean(bean.getVMOption(name).getValue());
+        } catch (RuntimeException | LinkageError e) {
+            return true;
+        }
+    }
+
+    /**
+     * @return the estimated shallow size of an instance of {@code type}, including the fields of its super classes.
+     */
+    public static long shallowSize(Class<?> type) {
+        long size = HEADER_SIZE;
+        for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if (!Modifier.isStatic(field.getModifiers()))
+                    size += fieldSize(field.getType());
+            }
+        }
+        return align(size);
+    }
+
+    /**
+     * @return the estimated size of an array of {@code length} references, such as {@code Object[]}.
+     */
+    public static long referenceArraySize(int length) {
+        return align(HEADER_SIZE + 4 + (long) length * REFERENCE_SIZE);
+    }
+
+    private static int fieldSize(Class<?> type) {
+        if (!type.isPrimitive()) return REFERENCE_SIZE;
+        if (type == long.class || type == double.class) return 8;
+        if (type == int.class || type == float.class) return 4;
+        if (type == short.class || type == char.class) return 2;
+        return 1;
+    }
+
+    private static long align(long size) {
+        return (size + 7) & ~7L;
+    }
+
+}
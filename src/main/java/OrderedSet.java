@@ -0,0 +1,72 @@
+/**
+ * 有序集合的公共接口，从 {@link RedBlackTree} 的公开方法中提取，不同的平衡策略 ({@link RedBlackTree}、{@link AVLTree}、
+ * {@link WAVLTree}) 实现同一个接口，调用方可以按负载选择实现。
+ *
+ * <pre>
+ * RedBlackTree  高度不超过 2 log(n)，插入最多 2 次旋转，删除最多 3 次旋转
+ * AVLTree       高度不超过 1.44 log(n)，查找路径最短，但删除时可能一路旋转到根节点
+ * WAVLTree      只有插入时高度和 AVL 树相同，不超过 1.44 log(n)，插入最多 2 次旋转，删除最多 2 次旋转
+ * </pre>
+ *
+ * 节点类型 N 是实现自己的节点，作为句柄使用：删除其他 key 时不会在节点之间移动 key，句柄在 key 被删除之前一直有效。
+ * 唯一的例外是重新分配所有节点的操作，例如 {@link RedBlackTree#compact()}，之后之前得到的句柄全部失效，需要重新查找。
+ *
+ * @param <K> the type of keys
+ * @param <N> the type of nodes returned as handles
+ */
+public interface OrderedSet<K extends Comparable<? super K>, N> {
+
+    /**
+     * @return the node of the given key, or {@code null} if there is no such key.
+     * @throws NullPointerException if the specified key is null
+     */
+    N search(K key);
+
+    /**
+     * @return the existing node or the new node of the given key.
+     * @throws NullPointerException if the specified key is null
+     */
+    N insert(K key);
+
+    /**
+     * @return the removed node, or {@code null} if there is no such key.
+     */
+    N remove(K key);
+
+    /**
+     * Removes the node returned by an earlier {@link #insert} or {@link #search} without searching for its key.
+     *
+     * @throws IllegalArgumentException if the node has already been removed, or was invalidated by an operation that
+     *                                  reallocates all nodes such as {@link RedBlackTree#compact()}
+     */
+    void remove(N node);
+
+    /**
+     * @return the node with the least key, or {@code null} if the set is empty.
+     */
+    N getFirstNode();
+
+    /**
+     * @return the node with the greatest key, or {@code null} if the set is empty.
+     */
+    N getLastNode();
+
+    /**
+     * @return the node with the least key greater than the key of {@code node}, or {@code null} if there is no such
+     * node.
+     */
+    N next(N node);
+
+    /**
+     * @return the node with the greatest key less than the key of {@code node}, or {@code null} if there is no such
+     * node.
+     */
+    N previous(N node);
+
+    K keyOf(N node);
+
+    default boolean contains(K key) {
+        return search(key) != null;
+    }
+
+}
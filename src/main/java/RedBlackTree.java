@@ -1,17 +1,40 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
 /**
  * 代码根据 {@link java.util.TreeMap} 的红黑树实现稍做调整
  *
  * @author yu 2019-05-04.
  */
-public class RedBlackTree<K extends Comparable<? super K>> {
+public class RedBlackTree<K extends Comparable<? super K>> implements OrderedSet<K, RedBlackTree.Node<K>> {
 
     // Red-black mechanics
     static final boolean RED = false;
     static final boolean BLACK = true;
 
+    /**
+     * The comparator used to maintain order in this tree, or null if it uses the natural ordering of its keys.
+     */
+    final Comparator<? super K> comparator;
+
     transient Node<K> root;
 
-    static final class Node<K> {
+    /**
+     * The leftmost and rightmost nodes, kept by insert and deleteNode so that the ends of the tree are found without
+     * walking down the spines. Rotations don't change the in-order sequence, so they never move the ends.
+     */
+    transient Node<K> first;
+    transient Node<K> last;
+
+    /**
+     * The number of nodes linked into the tree so far. Callers compare it before and after {@link #insert} to tell a
+     * new key from an existing one without a second descent, see {@link #add}.
+     */
+    transient long insertions;
+
+    static class Node<K> {
         K key;
         Node<K> left;
         Node<K> right;
@@ -27,11 +50,30 @@ public class RedBlackTree<K extends Comparable<? super K>> {
         }
     }
 
+    /**
+     * Constructs a new, empty tree, using the natural ordering of its keys.
+     */
+    public RedBlackTree() {
+        comparator = null;
+    }
+
+    /**
+     * Constructs a new, empty tree, ordered according to the given comparator, such as {@code Integer::compare} which
+     * compares two keys without the megamorphic {@link Comparable#compareTo} call.
+     */
+    public RedBlackTree(Comparator<? super K> comparator) {
+        this.comparator = comparator;
+    }
+
     /**
      * @return Returns this entry for the given key
      * @throws NullPointerException if the specified key is null
      */
-    public final Node<K> search(K key) {
+    @Override
+    public Node<K> search(K key) {
+        // Offload comparator-based version for sake of performance
+        if (comparator != null)
+            return searchUsingComparator(key);
         if (key == null)
             throw new NullPointerException();
 
@@ -49,27 +91,214 @@ public class RedBlackTree<K extends Comparable<? super K>> {
         return null;
     }
 
+    /**
+     * Version of search using comparator. Split off from search for performance.
+     */
+    private Node<K> searchUsingComparator(K key) {
+        Comparator<? super K> cpr = comparator;
+        Node<K> p = root;
+        while (p != null) {
+            int cmp = cpr.compare(key, p.key);
+            if (cmp < 0)
+                p = p.left;
+            else if (cmp > 0)
+                p = p.right;
+            else
+                return p;
+        }
+
+        return null;
+    }
+
+    /**
+     * Searches a batch of keys in one traversal. Every node on the way splits the batch by its key into the keys of its
+     * left subtree and the keys of its right subtree, so the upper levels shared by many keys are visited only once,
+     * and a subtree that no key falls into is never visited.
+     *
+     * <pre>
+     * k 次独立查找      k log(n) 次比较，每次都从根节点下降
+     * 批量查找          每个访问到的节点对其子批次做一次二分查找，k 接近 n 时接近 O(n)
+     * </pre>
+     *
+     * 子批次只剩 1 到 2 个 key 时，二分查找省不了比较次数，改为从当前节点开始逐个下降。
+     *
+     * @param keys    keys sorted in ascending order by the ordering of this tree, duplicates are allowed. If the keys are
+     *                not sorted, the results are undefined.
+     * @param results receives the node of {@code keys[i]} at {@code results[i]}, or {@code null} if there is no such key
+     * @throws IllegalArgumentException if {@code results} is shorter than {@code keys}
+     * @throws NullPointerException     if any of the keys is null
+     */
+    public void searchAll(K[] keys, Node<K>[] results) {
+        if (results.length < keys.length)
+            throw new IllegalArgumentException("results.length " + results.length + " < keys.length " + keys.length);
+        searchAll(root, keys, 0, keys.length, results);
+    }
+
+    /**
+     * Tests whether all keys of a sorted batch are in this tree, in one traversal like {@link #searchAll}. The
+     * traversal stops at the first missing key.
+     *
+     * @param keys keys sorted in ascending order by the ordering of this tree. If the keys are not sorted, the result
+     *             is undefined.
+     * @throws NullPointerException if any of the keys is null
+     */
+    public boolean containsAll(K[] keys) {
+        return containsAll(root, keys, 0, keys.length);
+    }
+
+    /**
+     * keys[from, to) 都在以 p 为根的子树的范围内，左边的子批次递归，右边的子批次循环
+     */
+    private void searchAll(Node<K> p, K[] keys, int from, int to, Node<K>[] results) {
+        while (from < to) {
+            if (p == null) {
+                Arrays.fill(results, from, to, null);
+                return;
+            }
+            if (to - from <= 2) {
+                for (int k = from; k < to; k++)
+                    results[k] = searchFrom(p, keys[k]);
+                return;
+            }
+            int i = lowerBound(keys, from, to, p.key);
+            int j = i;
+            while (j < to && compare(keys[j], p.key) == 0)
+                results[j++] = p;
+            searchAll(p.left, keys, from, i, results);
+            from = j;
+            p = p.right;
+        }
+    }
+
+    private boolean containsAll(Node<K> p, K[] keys, int from, int to) {
+        while (from < to) {
+            if (p == null)
+                return false;
+            if (to - from <= 2) {
+                for (int k = from; k < to; k++) {
+                    if (searchFrom(p, keys[k]) == null)
+                        return false;
+                }
+                return true;
+            }
+            int i = lowerBound(keys, from, to, p.key);
+            int j = i;
+            while (j < to && compare(keys[j], p.key) == 0)
+                j++;
+            if (!containsAll(p.left, keys, from, i))
+                return false;
+            from = j;
+            p = p.right;
+        }
+        return true;
+    }
+
+    private Node<K> searchFrom(Node<K> p, K key) {
+        while (p != null) {
+            int cmp = compare(key, p.key);
+            if (cmp < 0)
+                p = p.left;
+            else if (cmp > 0)
+                p = p.right;
+            else
+                return p;
+        }
+        return null;
+    }
+
+    /**
+     * @return the index of the first key in keys[from, to) that is not less than {@code key}, or {@code to} if there is
+     * no such key.
+     */
+    private int lowerBound(K[] keys, int from, int to, K key) {
+        while (from < to) {
+            int mid = (from + to) >>> 1;
+            if (compare(keys[mid], key) < 0)
+                from = mid + 1;
+            else
+                to = mid;
+        }
+        return from;
+    }
+
     /**
      * @param key key of entry
      * @return the exist entry or new entry with key {@code key}.
      * @throws NullPointerException if the specified key is null
      */
+    @Override
     public Node<K> insert(K key) {
         Node<K> t = root;
-        if (t == null) {
-            root = new Node<>(key, null);
-            return root;
-        }
+        if (t == null)
+            return linkRoot(key);
 
         int cmp;
         Node<K> parent;
 
+        // split comparator and comparable paths
+        Comparator<? super K> cpr = comparator;
+        if (cpr != null) {
+            do {
+                parent = t;
+                cmp = cpr.compare(key, t.key);
+                if (cmp < 0)
+                    t = t.left;
+                else if (cmp > 0)
+                    t = t.right;
+                else
+                    return t;
+            } while (t != null);
+        } else {
+            if (key == null)
+                throw new NullPointerException();
+
+            do {
+                parent = t;
+                cmp = key.compareTo(t.key);
+                if (cmp < 0)
+                    t = t.left;
+                else if (cmp > 0)
+                    t = t.right;
+                else
+                    return t;
+            } while (t != null);
+        }
+
+        return linkNode(key, parent, cmp);
+    }
+
+    /**
+     * Adds the key with a single descent, unlike {@link #search} followed by {@link #insert}.
+     *
+     * @return {@code true} if the key was added, {@code false} if it was already present.
+     * @throws NullPointerException if the specified key is null
+     */
+    public boolean add(K key) {
+        long n = insertions;
+        insert(key);
+        return insertions != n;
+    }
+
+    /**
+     * Inserts the key like {@link #insert(Comparable)}, but starts the descent from the lowest ancestor of {@code hint}
+     * whose subtree covers the key instead of from the root, see {@link #climb}. Applying a sorted batch with the node
+     * of the previous key as the hint skips the upper levels shared by neighbouring keys.
+     *
+     * @param hint a node of this tree, or {@code null} to start from the root
+     * @throws NullPointerException if the specified key is null
+     */
+    public Node<K> insert(K key, Node<K> hint) {
         if (key == null)
             throw new NullPointerException();
+        if (root == null)
+            return linkRoot(key);
 
+        Node<K> t = hint == null ? root : climb(hint, key);
+        int cmp;
+        Node<K> parent;
         do {
             parent = t;
-            cmp = key.compareTo(t.key);
+            cmp = compare(key, t.key);
             if (cmp < 0)
                 t = t.left;
             else if (cmp > 0)
@@ -78,16 +307,288 @@ public class RedBlackTree<K extends Comparable<? super K>> {
                 return t;
         } while (t != null);
 
-        Node<K> e = new Node<>(key, parent);
-        if (cmp < 0)
+        return linkNode(key, parent, cmp);
+    }
+
+    /**
+     * Searches the key like {@link #search(Comparable)}, but starts from the lowest ancestor of {@code hint} whose
+     * subtree covers the key.
+     *
+     * @param hint a node of this tree, or {@code null} to start from the root
+     * @throws NullPointerException if the specified key is null
+     */
+    public Node<K> search(K key, Node<K> hint) {
+        if (key == null)
+            throw new NullPointerException();
+        return searchFrom(hint == null ? root : climb(hint, key), key);
+    }
+
+    /**
+     * 从 hint 向上找到子树范围包含 key 的最低的祖先节点。以 key 大于 hint 为例，hint 子树的下界不大于 hint.key，
+     * 所以只需要检查上界：当前节点是右子时子树的上界和父节点相同，直接上移；是左子时父节点就是上界，key 小于它时停止。
+     * 相邻的 key 在树中也相邻时，只需要上移很少几层。
+     */
+    private Node<K> climb(Node<K> hint, K key) {
+        Node<K> x = hint;
+        int cmp = compare(key, x.key);
+        if (cmp > 0) {
+            while (x.parent != null && (x == x.parent.right || compare(key, x.parent.key) >= 0))
+                x = x.parent;
+        } else if (cmp < 0) {
+            while (x.parent != null && (x == x.parent.left || compare(key, x.parent.key) <= 0))
+                x = x.parent;
+        }
+        return x;
+    }
+
+    private Node<K> linkRoot(K key) {
+        root = newNode(key, null);
+        first = last = root;
+        insertions++;
+        augmentPath(root);
+        return root;
+    }
+
+    /**
+     * Links a new node with the given key as the left child of {@code parent} if {@code cmp < 0}, otherwise as the
+     * right child, and then re-balances the tree.
+     */
+    final Node<K> linkNode(K key, Node<K> parent, int cmp) {
+        Node<K> e = newNode(key, parent);
+        insertions++;
+        if (cmp < 0) {
             parent.left = e;
-        else
+            if (parent == first)
+                first = e;
+        } else {
             parent.right = e;
+            if (parent == last)
+                last = e;
+        }
 
+        augmentPath(e);
         fixAfterInsertion(e);
         return e;
     }
 
+    /**
+     * Compares two keys using the correct comparison method for this tree.
+     */
+    final int compare(K k1, K k2) {
+        return comparator == null ? k1.compareTo(k2) : comparator.compare(k1, k2);
+    }
+
+    /**
+     * Creates the node for a new key, subclasses return their own node type to carry augmented fields.
+     */
+    Node<K> newNode(K key, Node<K> parent) {
+        return new Node<>(key, parent);
+    }
+
+    /**
+     * Augmentation hooks.
+     *
+     * Subclasses that keep a summary of each subtree in its root node (for example the max endpoint of an interval
+     * tree) override these two methods. {@link #augment} recomputes the summary of a single node from its own key and
+     * its children, it is called on both nodes of every rotation, child first. {@link #augmentPath} recomputes the
+     * summaries from a node up to the root, it is called after a node is linked into or unlinked from the tree, before
+     * the rebalancing starts. Plain trees keep both as no-ops so they don't pay for the walk up to the root.
+     */
+    void augment(Node<K> x) {
+    }
+
+    void augmentPath(Node<K> x) {
+    }
+
+    /**
+     * Returns the first Node in the tree, or null if the tree is empty.
+     */
+    @Override
+    public final Node<K> getFirstNode() {
+        return first;
+    }
+
+    /**
+     * Returns the node for the least key greater than or equal to the given key, or null if there is no such key.
+     */
+    final Node<K> ceilingNode(K key) {
+        Node<K> p = root;
+        Node<K> ceiling = null;
+        while (p != null) {
+            int cmp = compare(key, p.key);
+            if (cmp < 0) {
+                ceiling = p;
+                p = p.left;
+            } else if (cmp > 0) {
+                p = p.right;
+            } else {
+                return p;
+            }
+        }
+        return ceiling;
+    }
+
+    /**
+     * Returns the last Node in the tree, or null if the tree is empty.
+     */
+    @Override
+    public final Node<K> getLastNode() {
+        return last;
+    }
+
+    /**
+     * Replaces the whole tree with the tree rooted at {@code root}, for operations that relink nodes without going
+     * through insert and deleteNode, such as {@link RedBlackTreeSets}.
+     */
+    void setRoot(Node<K> root) {
+        this.root = root;
+        Node<K> p = root;
+        if (p != null)
+            while (p.left != null)
+                p = p.left;
+        first = p;
+        p = root;
+        if (p != null)
+            while (p.right != null)
+                p = p.right;
+        last = p;
+    }
+
+    /**
+     * @return the least key, or {@code null} if the tree is empty.
+     */
+    public K peekFirst() {
+        return first == null ? null : first.key;
+    }
+
+    /**
+     * @return the greatest key, or {@code null} if the tree is empty.
+     */
+    public K peekLast() {
+        return last == null ? null : last.key;
+    }
+
+    /**
+     * Removes the least key without searching for it.
+     *
+     * @return the removed key, or {@code null} if the tree is empty.
+     */
+    public K pollFirst() {
+        Node<K> p = first;
+        if (p == null)
+            return null;
+        deleteNode(p);
+        return p.key;
+    }
+
+    /**
+     * Removes the greatest key without searching for it.
+     *
+     * @return the removed key, or {@code null} if the tree is empty.
+     */
+    public K pollLast() {
+        Node<K> p = last;
+        if (p == null)
+            return null;
+        deleteNode(p);
+        return p.key;
+    }
+
+    /**
+     * Replaces every node with a new node allocated in breadth-first order, keeping the structure, colors and keys
+     * exactly as they are.
+     *
+     * <pre>
+     * 经过大量插入和删除之后，相邻的节点在堆中可能相隔很远，每向下一层都可能是一次缓存未命中。
+     * JVM 在 TLAB 中按分配顺序连续分配对象，按广度优先顺序重新分配之后，上面几层的节点集中在少数缓存行中，
+     * 和 {@link EytzingerIndex} 的数组布局相同，所有查找共享的上层节点更容易留在缓存中。
+     * </pre>
+     *
+     * GC 复制存活对象时可能改变对象之间的相对位置，所以效果需要在目标 GC 下测量，见 CompactionBenchmark。
+     * 子类的节点类型通过 {@link #newNode} 保留，增强数据由 {@link #augment} 从下往上重新计算，
+     * 首尾节点和子类的其他状态由 {@link #setRoot} 更新。
+     *
+     * 所有节点都被替换，之前通过 {@link #insert} 或 {@link #search} 得到的节点句柄全部失效。Java 无法在移动对象的同时
+     * 保持对象的身份，所以这是 {@link OrderedSet} 句柄保证的例外。旧节点之间的链接会被清除，失效的句柄仍然可以读取 key，
+     * 但是 {@link #remove(Node)} 会抛出 IllegalArgumentException，{@link #next} 和 {@link #previous} 返回 null，
+     * 不会误改新的树。
+     */
+    public void compact() {
+        Node<K> old = root;
+        setRoot(copyBreadthFirst());
+        unlinkAll(old);
+    }
+
+    /**
+     * 按广度优先顺序复制所有节点，返回新的根节点，不修改这棵树。复制只读取这棵树，可以在读锁内或者在唯一的写线程中进行，
+     * 之后再用 {@link #setRoot} 替换，例如 {@link BatchingTreeWriter#compact()}。
+     */
+    Node<K> copyBreadthFirst() {
+        if (root == null)
+            return null;
+
+        List<Node<K>> nodes = new ArrayList<>();
+        List<Node<K>> copies = new ArrayList<>();
+        nodes.add(root);
+        copies.add(newNode(root.key, null));
+        for (int i = 0; i < nodes.size(); i++) {
+            Node<K> p = nodes.get(i);
+            Node<K> c = copies.get(i);
+            c.color = p.color;
+            if (p.left != null) {
+                c.left = newNode(p.left.key, c);
+                nodes.add(p.left);
+                copies.add(c.left);
+            }
+            if (p.right != null) {
+                c.right = newNode(p.right.key, c);
+                nodes.add(p.right);
+                copies.add(c.right);
+            }
+        }
+
+        // 广度优先顺序中子节点总是在父节点之后，倒序就是先子节点后父节点
+        for (int i = copies.size() - 1; i >= 0; i--)
+            augment(copies.get(i));
+        return copies.get(0);
+    }
+
+    /**
+     * 清除以 root 为根的所有旧节点之间的链接，按后序从叶子开始逐个摘下，不需要额外的栈或队列
+     */
+    static <K> void unlinkAll(Node<K> root) {
+        Node<K> p = root;
+        while (p != null) {
+            if (p.left != null) {
+                p = p.left;
+            } else if (p.right != null) {
+                p = p.right;
+            } else {
+                Node<K> parent = p.parent;
+                if (parent != null) {
+                    if (parent.left == p)
+                        parent.left = null;
+                    else
+                        parent.right = null;
+                }
+                p.parent = null;
+                p = parent;
+            }
+        }
+    }
+
+    /**
+     * Estimates the heap used by this tree and all of its nodes in bytes, see {@link ObjectLayout}. Keys are not
+     * included since they are usually shared with the caller, neither are the objects referenced by augmented fields.
+     */
+    public long footprintEstimate() {
+        long nodes = 0;
+        for (Node<K> p = getFirstNode(); p != null; p = successor(p))
+            nodes++;
+        long size = ObjectLayout.shallowSize(getClass());
+        return root == null ? size : size + nodes * ObjectLayout.shallowSize(root.getClass());
+    }
+
     /**
      * Returns the successor of the specified Node, or null if no such.
      */
@@ -111,6 +612,28 @@ public class RedBlackTree<K extends Comparable<? super K>> {
         }
     }
 
+    /**
+     * Returns the predecessor of the specified Node, or null if no such.
+     */
+    static <K> Node<K> predecessor(Node<K> t) {
+        if (t == null)
+            return null;
+        else if (t.left != null) {
+            Node<K> p = t.left;
+            while (p.right != null)
+                p = p.right;
+            return p;
+        } else {
+            Node<K> p = t.parent;
+            Node<K> ch = t;
+            while (p != null && ch == p.left) {
+                ch = p;
+                p = p.parent;
+            }
+            return p;
+        }
+    }
+
     /**
      * Balancing operations.
      *
@@ -169,6 +692,8 @@ public class RedBlackTree<K extends Comparable<? super K>> {
                 p.parent.right = r;
             r.left = p;
             p.parent = r;
+            augment(p);
+            augment(r);
         }
     }
 
@@ -199,6 +724,8 @@ public class RedBlackTree<K extends Comparable<? super K>> {
             else p.parent.left = l;
             l.right = p;
             p.parent = l;
+            augment(p);
+            augment(l);
         }
     }
 
@@ -259,25 +786,67 @@ public class RedBlackTree<K extends Comparable<? super K>> {
         root.color = BLACK;
     }
 
+    @Override
     public Node<K> remove(K key) {
         Node<K> p = search(key);
         if (p == null)
             return null;
 
-        deleteNode(p);
+        remove(p);
         return p;
     }
 
+    /**
+     * Removes the node returned by an earlier {@link #insert} or {@link #search} without searching for its key.
+     * Removal never moves keys between nodes, so the handles of all other nodes stay valid and keep their keys.
+     * {@link #compact()} is the exception, it replaces every node and all earlier handles become invalid.
+     *
+     * @throws IllegalArgumentException if the node has already been removed, or was replaced by {@link #compact()}
+     */
+    @Override
+    public void remove(Node<K> node) {
+        if (node.parent == null && node != root)
+            throw new IllegalArgumentException("node is not in the tree");
+        deleteNode(node);
+    }
+
+    /**
+     * @return the node with the least key greater than the key of {@code node}, or {@code null} if there is no such
+     * node. A node replaced by {@link #compact()} has no neighbours any more and also returns {@code null}.
+     */
+    @Override
+    public Node<K> next(Node<K> node) {
+        return successor(node);
+    }
+
+    /**
+     * @return the node with the greatest key less than the key of {@code node}, or {@code null} if there is no such
+     * node.
+     */
+    @Override
+    public Node<K> previous(Node<K> node) {
+        return predecessor(node);
+    }
+
+    @Override
+    public K keyOf(Node<K> node) {
+        return node.key;
+    }
+
     /**
      * Delete node p, and then re-balance the tree.
      */
     private void deleteNode(Node<K> p) {
-        // If strictly internal, copy successor's element to p and then make p
-        // point to successor.
+        // The ends have at most one child, so they are never swapped with the successor below
+        if (p == first)
+            first = successor(p);
+        if (p == last)
+            last = predecessor(p);
+
+        // If strictly internal, swap p with its successor so that p has at most one child.
+        // The successor node itself takes the place of p, keys are never copied between nodes.
         if (p.left != null && p.right != null) {
-            Node<K> s = successor(p);                                         // 节点有 2 个子节点时，找到实际删除的后继节点
-            p.key = s.key;                                                    // 将后继节点的值复制到原来节点上，原来的节点只是值被删除，节点本身不删除
-            p = s;                                                            // 将实际要删除的节点位置指向后继节点位置
+            swapWithSuccessor(p, successor(p));                               // 节点有 2 个子节点时，和后继节点交换位置和颜色，之后 p 最多只有一个右子节点
         } // p has 2 children                                                 //
         //                                                                    //////////////////////////////////////////////////////////////////
         // Start fixup at replacement node, if it exists.                     //
@@ -291,6 +860,7 @@ public class RedBlackTree<K extends Comparable<? super K>> {
                 p.parent.left = replacement;                                  //
             else                                                              // 实际被删除的节点 p 为右子
                 p.parent.right = replacement;                                 //
+            augmentPath(replacement.parent);                                  // p 已经不在树中，从其父节点开始更新到根节点
             //                                                                //
             // Null out links so they are OK to use by fixAfterDeletion.      //
             p.left = p.right = p.parent = null;                               //
@@ -304,16 +874,71 @@ public class RedBlackTree<K extends Comparable<? super K>> {
             if (p.color == BLACK)                                             // 如果是红色的节点，直接删除就完成
                 fixAfterDeletion(p);                                          // 如果被删除的是黑色节点，则会破坏红黑树性质 5,需要修复红黑树
 
-            if (p.parent != null) {
-                if (p == p.parent.left)
-                    p.parent.left = null;
-                else if (p == p.parent.right)
-                    p.parent.right = null;
+            Node<K> parent = p.parent;
+            if (parent != null) {
+                if (p == parent.left)
+                    parent.left = null;
+                else if (p == parent.right)
+                    parent.right = null;
                 p.parent = null;
+                augmentPath(parent);
             }
         }
     }
 
+    /**
+     * 节点 s 是 p 右子树中最左的节点，没有左子节点。交换 p 和 s 在树中的位置和颜色，交换之后红黑树的颜色分布不变，
+     * 只是 p 和 s 的 key 暂时不满足顺序，p 随即被删除。
+     *
+     * <pre>
+     *       P              S              P              S
+     *      / \            / \            / \            / \
+     *     A   S    =&gt;    A   P          A   B    =&gt;    A   B
+     *          \              \             /              /
+     *           C              C          ...            ...
+     *                                     /              /
+     *                                    S              P
+     *                                     \              \
+     *                                      C              C
+     * </pre>
+     *
+     * s 的增强数据在新的位置上已经过期，但 s 的新位置是 p 的新位置的祖先，删除 p 之后的 {@link #augmentPath} 会重新计算。
+     */
+    private void swapWithSuccessor(Node<K> p, Node<K> s) {
+        Node<K> parent = p.parent;
+        Node<K> sParent = s.parent;
+        Node<K> sRight = s.right;
+
+        s.left = p.left;
+        s.left.parent = s;
+        s.parent = parent;
+        if (parent == null)
+            root = s;
+        else if (p == parent.left)
+            parent.left = s;
+        else
+            parent.right = s;
+
+        if (sParent == p) {
+            s.right = p;
+            p.parent = s;
+        } else {
+            s.right = p.right;
+            s.right.parent = s;
+            sParent.left = p;
+            p.parent = sParent;
+        }
+
+        p.left = null;
+        p.right = sRight;
+        if (sRight != null)
+            sRight.parent = p;
+
+        boolean color = p.color;
+        p.color = s.color;
+        s.color = color;
+    }
+
     /**
      * From CLR
      *
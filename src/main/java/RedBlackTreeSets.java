@@ -0,0 +1,389 @@
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * 基于 join 的红黑树集合运算：并集、交集和差集。
+ *
+ * <pre>
+ * 所有运算都只依赖 2 个基本操作：
+ *
+ *   join(L, k, R)   L 中所有 key 都小于 k，R 中所有 key 都大于 k，把三者合成一棵红黑树，
+ *                   沿着较高的树的右(左)边界向下找到黑高相同的黑节点挂上 k，再向上修复，代价 O(|bh(L) - bh(R)| + 1)
+ *   split(T, k)     按 k 把 T 拆成小于 k 的树、等于 k 的节点和大于 k 的树，代价 O(log n)
+ *
+ * 以并集为例：
+ *
+ *   union(A, B) = join(union(A.left, B&lt;k), k, union(A.right, B&gt;k))   其中 k 为 A 的根节点
+ *
+ * 左右 2 个子问题互不相交，可以放到 ForkJoinPool 中并行计算，总代价为 O(m log(n / m + 1))。
+ * </pre>
+ *
+ * 运算直接重用两棵树原有的节点，不会新建节点。结果保存在第一棵树中，第二棵树会被清空，
+ * 不属于结果的节点被丢弃，之前通过 insert/search 得到的这些节点不再属于任何树。被丢弃的节点之间以及和结果之间的链接都会被清除，
+ * 和 {@link RedBlackTree#compact()} 一样，对这些句柄调用 {@link RedBlackTree#remove(RedBlackTree.Node)} 会抛出
+ * IllegalArgumentException，不会误改结果。保留下来的节点仍然是有效的句柄。
+ */
+public final class RedBlackTreeSets {
+
+    private static final boolean RED = RedBlackTree.RED;
+    private static final boolean BLACK = RedBlackTree.BLACK;
+
+    /**
+     * 两棵树的黑高都不小于此值时才拆分为并行任务，黑高为 h 的红黑树至少有 2^h - 1 个节点
+     */
+    private static final int PARALLEL_HEIGHT = 10;
+
+    private static final int UNION = 0;
+    private static final int INTERSECTION = 1;
+    private static final int DIFFERENCE = 2;
+
+    private RedBlackTreeSets() {
+    }
+
+    /**
+     * Adds all keys of {@code b} to {@code a}, keys present in both trees keep the node of {@code a}. {@code b} is
+     * empty afterwards.
+     *
+     * @throws IllegalArgumentException if the trees are not of the same class or not ordered by the same comparator
+     */
+    public static <K extends Comparable<? super K>> void union(RedBlackTree<K> a, RedBlackTree<K> b) {
+        apply(UNION, a, b, null);
+    }
+
+    public static <K extends Comparable<? super K>> void union(RedBlackTree<K> a, RedBlackTree<K> b, ForkJoinPool pool) {
+        apply(UNION, a, b, pool);
+    }
+
+    /**
+     * Retains only the keys of {@code a} that are also in {@code b}. {@code b} is empty afterwards.
+     *
+     * @throws IllegalArgumentException if the trees are not of the same class or not ordered by the same comparator
+     */
+    public static <K extends Comparable<? super K>> void intersection(RedBlackTree<K> a, RedBlackTree<K> b) {
+        apply(INTERSECTION, a, b, null);
+    }
+
+    public static <K extends Comparable<? super K>> void intersection(RedBlackTree<K> a, RedBlackTree<K> b, ForkJoinPool pool) {
+        apply(INTERSECTION, a, b, pool);
+    }
+
+    /**
+     * Removes from {@code a} all keys that are in {@code b}. {@code b} is empty afterwards.
+     *
+     * @throws IllegalArgumentException if the trees are not of the same class or not ordered by the same comparator
+     */
+    public static <K extends Comparable<? super K>> void difference(RedBlackTree<K> a, RedBlackTree<K> b) {
+        apply(DIFFERENCE, a, b, null);
+    }
+
+    public static <K extends Comparable<? super K>> void difference(RedBlackTree<K> a, RedBlackTree<K> b, ForkJoinPool pool) {
+        apply(DIFFERENCE, a, b, pool);
+    }
+
+    private static <K extends Comparable<? super K>> void apply(int op, RedBlackTree<K> a, RedBlackTree<K> b, ForkJoinPool pool) {
+        if (a.getClass() != b.getClass())
+            throw new IllegalArgumentException("trees are not of the same class: " + a.getClass() + ", " + b.getClass());
+        if (!Objects.equals(a.comparator, b.comparator))
+            throw new IllegalArgumentException("trees are not ordered by the same comparator");
+        if (a == b) {
+            if (op == DIFFERENCE) {
+                RedBlackTree.Node<K> old = a.root;
+                a.setRoot(null);
+                RedBlackTree.unlinkAll(old);
+            }
+            return;
+        }
+
+        Piece<K> x = new Piece<>(a.root, blackHeight(a.root));
+        Piece<K> y = new Piece<>(b.root, blackHeight(b.root));
+        b.setRoot(null);
+        SetTask<K> task = new SetTask<>(op, a, x, y, pool != null);
+        a.setRoot((pool == null ? task.compute() : pool.invoke(task)).root);
+    }
+
+    private static <K> int blackHeight(RedBlackTree.Node<K> p) {
+        int h = 0;
+        for (; p != null; p = p.left)
+            if (p.color == BLACK)
+                h++;
+        return h;
+    }
+
+    /**
+     * 一棵独立的子树，根节点为黑色或者为空，height 为根节点到叶子路径上的黑节点数
+     */
+    private static final class Piece<K> {
+
+        final RedBlackTree.Node<K> root;
+        final int height;
+
+        Piece(RedBlackTree.Node<K> root, int height) {
+            this.root = root;
+            this.height = height;
+        }
+    }
+
+    private static final class Split<K> {
+
+        final Piece<K> left;
+        final RedBlackTree.Node<K> node;
+        final Piece<K> right;
+
+        Split(Piece<K> left, RedBlackTree.Node<K> node, Piece<K> right) {
+            this.left = left;
+            this.node = node;
+            this.right = right;
+        }
+    }
+
+    private static final class SetTask<K extends Comparable<? super K>> extends RecursiveTask<Piece<K>> {
+
+        private static final long serialVersionUID = 1L;
+
+        final int op;
+        final RedBlackTree<K> tree;
+        final Piece<K> a;
+        final Piece<K> b;
+        final boolean parallel;
+
+        SetTask(int op, RedBlackTree<K> tree, Piece<K> a, Piece<K> b, boolean parallel) {
+            this.op = op;
+            this.tree = tree;
+            this.a = a;
+            this.b = b;
+            this.parallel = parallel;
+        }
+
+        @Override
+        protected Piece<K> compute() {
+            if (op == DIFFERENCE)
+                return difference();
+
+            if (a.root == null || b.root == null) {
+                if (op == UNION)
+                    return a.root == null ? b : a;
+                // 交集为空，另一棵子树整个被丢弃
+                RedBlackTree.unlinkAll(a.root == null ? b.root : a.root);
+                return new Piece<>(null, 0);
+            }
+
+            RedBlackTree.Node<K> k = a.root;
+            Piece<K> la = child(k.left, a.height - 1);
+            Piece<K> ra = child(k.right, a.height - 1);
+            Split<K> s = split(b.root, b.height, k.key);
+
+            Piece<K>[] parts = both(la, s.left, ra, s.right);
+            if (op == UNION || s.node != null)
+                return join(parts[0], k, parts[1]);
+            discard(k);
+            return join2(parts[0], parts[1]);
+        }
+
+        private Piece<K> difference() {
+            if (a.root == null || b.root == null) {
+                if (b.root != null)
+                    RedBlackTree.unlinkAll(b.root);
+                return a;
+            }
+
+            RedBlackTree.Node<K> k = b.root;
+            Piece<K> lb = child(k.left, b.height - 1);
+            Piece<K> rb = child(k.right, b.height - 1);
+            discard(k);
+            Split<K> s = split(a.root, a.height, k.key);
+
+            Piece<K>[] parts = both(s.left, lb, s.right, rb);
+            return join2(parts[0], parts[1]);
+        }
+
+        private Piece<K>[] both(Piece<K> a1, Piece<K> b1, Piece<K> a2, Piece<K> b2) {
+            SetTask<K> left = new SetTask<>(op, tree, a1, b1, parallel);
+            SetTask<K> right = new SetTask<>(op, tree, a2, b2, parallel);
+            if (parallel && Math.min(a.height, b.height) >= PARALLEL_HEIGHT) {
+                left.fork();
+                Piece<K> r = right.compute();
+                return pair(left.join(), r);
+            }
+            return pair(left.compute(), right.compute());
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <K> Piece<K>[] pair(Piece<K> left, Piece<K> right) {
+            Piece<K>[] pieces = (Piece<K>[]) new Piece<?>[2];
+            pieces[0] = left;
+            pieces[1] = right;
+            return pieces;
+        }
+
+        /**
+         * 将 t 拆分为小于 key 的树，等于 key 的节点，大于 key 的树。
+         * 三种运算都会丢弃等于 key 的节点 (并集和交集保留第一棵树的节点，差集删除它)，所以拆分时直接清除它的链接
+         */
+        private Split<K> split(RedBlackTree.Node<K> t, int ht, K key) {
+            if (t == null)
+                return new Split<>(new Piece<>(null, 0), null, new Piece<>(null, 0));
+
+            int hc = t.color == BLACK ? ht - 1 : ht;
+            RedBlackTree.Node<K> l = t.left;
+            RedBlackTree.Node<K> r = t.right;
+            int cmp = tree.compare(key, t.key);
+            if (cmp == 0) {
+                Split<K> s = new Split<>(child(l, hc), t, child(r, hc));
+                discard(t);
+                return s;
+            }
+
+            if (cmp < 0) {
+                Split<K> s = split(l, hc, key);
+                return new Split<>(s.left, s.node, join(s.right, t, child(r, hc)));
+            } else {
+                Split<K> s = split(r, hc, key);
+                return new Split<>(join(child(l, hc), t, s.left), s.node, s.right);
+            }
+        }
+
+        /**
+         * L 中所有 key 都小于 R 中的 key，取出 L 的最后一个节点作为中间节点 join
+         */
+        private Piece<K> join2(Piece<K> l, Piece<K> r) {
+            if (l.root == null)
+                return r;
+            Split<K> s = splitLast(l.root, l.height);
+            return join(s.left, s.node, r);
+        }
+
+        private Split<K> splitLast(RedBlackTree.Node<K> t, int ht) {
+            int hc = t.color == BLACK ? ht - 1 : ht;
+            RedBlackTree.Node<K> l = t.left;
+            RedBlackTree.Node<K> r = t.right;
+            if (r == null)
+                return new Split<>(child(l, hc), t, null);
+
+            Split<K> s = splitLast(r, hc);
+            return new Split<>(join(child(l, hc), t, s.left), s.node, null);
+        }
+
+        private Piece<K> join(Piece<K> l, RedBlackTree.Node<K> k, Piece<K> r) {
+            RedBlackTree.Node<K> t;
+            int height;
+            if (l.height > r.height) {
+                t = joinRight(l.root, l.height, k, r.root, r.height);
+                height = l.height;
+            } else if (l.height < r.height) {
+                t = joinLeft(l.root, l.height, k, r.root, r.height);
+                height = r.height;
+            } else {
+                link(k, l.root, r.root);
+                k.color = RED;
+                t = k;
+                height = l.height;
+            }
+
+            t.parent = null;
+            if (t.color == RED) {
+                t.color = BLACK;
+                height++;
+            }
+            return new Piece<>(t, height);
+        }
+
+        /**
+         * 沿 t 的右边界向下找到黑高为 hr 的黑节点，用红色的 k 连接该节点和 r，再向上修复连续的红节点。
+         * 返回的子树黑高不变，根节点为红色时其右子可能也是红色，由上一层旋转修复。
+         */
+        private RedBlackTree.Node<K> joinRight(RedBlackTree.Node<K> t, int ht, RedBlackTree.Node<K> k, RedBlackTree.Node<K> r, int hr) {
+            if (ht == hr && (t == null || t.color == BLACK)) {
+                link(k, t, r);
+                k.color = RED;
+                return k;
+            }
+
+            RedBlackTree.Node<K> c = joinRight(t.right, t.color == BLACK ? ht - 1 : ht, k, r, hr);
+            t.right = c;
+            c.parent = t;
+            if (t.color == BLACK && c.color == RED && c.right != null && c.right.color == RED) {
+                c.right.color = BLACK;
+                return rotateLeft(t);
+            }
+            tree.augment(t);
+            return t;
+        }
+
+        private RedBlackTree.Node<K> joinLeft(RedBlackTree.Node<K> l, int hl, RedBlackTree.Node<K> k, RedBlackTree.Node<K> t, int ht) {
+            if (ht == hl && (t == null || t.color == BLACK)) {
+                link(k, l, t);
+                k.color = RED;
+                return k;
+            }
+
+            RedBlackTree.Node<K> c = joinLeft(l, hl, k, t.left, t.color == BLACK ? ht - 1 : ht);
+            t.left = c;
+            c.parent = t;
+            if (t.color == BLACK && c.color == RED && c.left != null && c.left.color == RED) {
+                c.left.color = BLACK;
+                return rotateRight(t);
+            }
+            tree.augment(t);
+            return t;
+        }
+
+        private RedBlackTree.Node<K> rotateLeft(RedBlackTree.Node<K> p) {
+            RedBlackTree.Node<K> r = p.right;
+            p.right = r.left;
+            if (r.left != null)
+                r.left.parent = p;
+            r.parent = p.parent;
+            r.left = p;
+            p.parent = r;
+            tree.augment(p);
+            tree.augment(r);
+            return r;
+        }
+
+        private RedBlackTree.Node<K> rotateRight(RedBlackTree.Node<K> p) {
+            RedBlackTree.Node<K> l = p.left;
+            p.left = l.right;
+            if (l.right != null)
+                l.right.parent = p;
+            l.parent = p.parent;
+            l.right = p;
+            p.parent = l;
+            tree.augment(p);
+            tree.augment(l);
+            return l;
+        }
+
+        private void link(RedBlackTree.Node<K> k, RedBlackTree.Node<K> l, RedBlackTree.Node<K> r) {
+            k.left = l;
+            k.right = r;
+            if (l != null)
+                l.parent = k;
+            if (r != null)
+                r.parent = k;
+            tree.augment(k);
+        }
+
+        /**
+         * 清除被丢弃的节点 k 的链接，它的子树已经由 {@link #child} 拆下来，之后由调用方重新连接
+         */
+        private static <K> void discard(RedBlackTree.Node<K> k) {
+            k.left = k.right = k.parent = null;
+        }
+
+        /**
+         * 把子节点 t 从父节点上拆下来作为独立的子树，红色的根节点置黑，黑高加 1
+         */
+        private static <K> Piece<K> child(RedBlackTree.Node<K> t, int ht) {
+            if (t == null)
+                return new Piece<>(null, 0);
+            t.parent = null;
+            if (t.color == RED) {
+                t.color = BLACK;
+                ht++;
+            }
+            return new Piece<>(t, ht);
+        }
+    }
+
+}
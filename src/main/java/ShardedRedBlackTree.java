@@ -0,0 +1,315 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * 按 key 的范围分片的有序集合，每个分片是一棵独立的红黑树，有自己的读写锁，不同分片上的写操作可以在多个核上并行。
+ *
+ * <pre>
+ * 分割点 splits = [s0, s1, ..., s(n-2)] 把 key 分成 n 个分片：
+ *
+ *   分片 0      key &lt; s0
+ *   分片 i      s(i-1) &lt;= key &lt; s(i)
+ *   分片 n-1    key &gt;= s(n-2)
+ *
+ * 分片之间的 key 范围互不重叠并且有序，有序遍历和范围查询只需要按分片顺序依次遍历，
+ * 每次只持有一个分片的读锁。
+ * </pre>
+ *
+ * 插入之后检查插入的分片，删除之后检查最大的分片，某个分片的 key 数超过其余分片平均 key 数的 skew 倍时，{@link #rebalance()} 按所有 key 的分位数重新计算分割点并重建分片。
+ * 和其余分片而不是包括自己在内的平均值比较，否则 skew 不小于分片数时条件永远不成立，例如 2 个分片、skew 为 2 时，
+ * 一个分片要超过全部 key 数才算倾斜。
+ * 分割点和分片一起保存在不可变的 {@link Layout} 中，操作在获得分片锁之后检查 layout 是否已经被替换，被替换时重试，
+ * 所以普通操作不需要额外的全局锁。
+ */
+public class ShardedRedBlackTree<K extends Comparable<? super K>> {
+
+    /**
+     * 分片小于此值时不检查是否需要重新平衡
+     */
+    private static final int MIN_REBALANCE_SIZE = 1024;
+
+    private final double skew;
+    private final LongAdder size = new LongAdder();
+    private volatile Layout<K> layout;
+
+    private static final class Shard<K extends Comparable<? super K>> {
+
+        final RedBlackTree<K> tree = new RedBlackTree<>();
+        final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        int size; // guarded by lock, read without the lock only by largestShardSize
+    }
+
+    private static final class Layout<K extends Comparable<? super K>> {
+
+        final K[] splits;
+        final Shard<K>[] shards;
+
+        Layout(K[] splits) {
+            this.splits = splits;
+            this.shards = newShards(splits.length + 1);
+            for (int i = 0; i < shards.length; i++)
+                shards[i] = new Shard<>();
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <K extends Comparable<? super K>> Shard<K>[] newShards(int n) {
+            return (Shard<K>[]) new Shard<?>[n];
+        }
+    }
+
+    public ShardedRedBlackTree(K[] splits) {
+        this(splits, 2.0);
+    }
+
+    /**
+     * @param splits the initial split points in strictly ascending order, {@code splits.length + 1} shards are created
+     * @param skew   a shard is rebalanced when its size exceeds {@code skew} times the average size of the other shards
+     * @throws IllegalArgumentException if the split points are not strictly ascending or {@code skew} is not greater
+     *                                  than 1
+     */
+    public ShardedRedBlackTree(K[] splits, double skew) {
+        for (int i = 1; i < splits.length; i++) {
+            if (splits[i - 1].compareTo(splits[i]) >= 0)
+                throw new IllegalArgumentException("split points are not strictly ascending at index " + i);
+        }
+        if (!(skew > 1))
+            throw new IllegalArgumentException("skew: " + skew);
+
+        this.skew = skew;
+        this.layout = new Layout<>(splits.clone());
+    }
+
+    public long size() {
+        return size.sum();
+    }
+
+    public int shards() {
+        return layout.shards.length;
+    }
+
+    /**
+     * @return {@code true} if the key was added, {@code false} if it was already present.
+     * @throws NullPointerException if the specified key is null
+     */
+    public boolean add(K key) {
+        if (key == null)
+            throw new NullPointerException();
+
+        while (true) {
+            Layout<K> l = layout;
+            Shard<K> s = l.shards[route(l.splits, key)];
+            boolean added;
+            int shardSize;
+            s.lock.writeLock().lock();
+            try {
+                if (l != layout)
+                    continue;
+                added = s.tree.add(key);
+                if (added) {
+                    s.size++;
+                    size.increment();
+                }
+                shardSize = s.size;
+            } finally {
+                s.lock.writeLock().unlock();
+            }
+
+            // 每 64 次插入检查一次，避免每次都汇总 LongAdder
+            if (added && (shardSize & 63) == 0 && skewed(shardSize, l))
+                rebalance(l);
+            return added;
+        }
+    }
+
+    /**
+     * @return {@code true} if the key was removed, {@code false} if it was not present.
+     * @throws NullPointerException if the specified key is null
+     */
+    public boolean remove(K key) {
+        if (key == null)
+            throw new NullPointerException();
+
+        while (true) {
+            Layout<K> l = layout;
+            Shard<K> s = l.shards[route(l.splits, key)];
+            int shardSize;
+            s.lock.writeLock().lock();
+            try {
+                if (l != layout)
+                    continue;
+                if (s.tree.remove(key) == null)
+                    return false;
+                shardSize = --s.size;
+                size.decrement();
+            } finally {
+                s.lock.writeLock().unlock();
+            }
+
+            // 删除让其他分片相对变大，检查最大的分片，同样每 64 次删除检查一次
+            if ((shardSize & 63) == 0 && skewed(largestShardSize(l), l))
+                rebalance(l);
+            return true;
+        }
+    }
+
+    /**
+     * @throws NullPointerException if the specified key is null
+     */
+    public boolean contains(K key) {
+        if (key == null)
+            throw new NullPointerException();
+
+        while (true) {
+            Layout<K> l = layout;
+            Shard<K> s = l.shards[route(l.splits, key)];
+            s.lock.readLock().lock();
+            try {
+                if (l != layout)
+                    continue;
+                return s.tree.search(key) != null;
+            } finally {
+                s.lock.readLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * @return all keys between {@code lo} and {@code hi} inclusive, in ascending order.
+     */
+    public List<K> range(K lo, K hi) {
+        List<K> result = new ArrayList<>();
+        scan(lo, hi, result::add);
+        return result;
+    }
+
+    /**
+     * Performs {@code action} on every key in ascending order.
+     */
+    public void forEach(Consumer<? super K> action) {
+        scan(null, null, action);
+    }
+
+    /**
+     * 依次扫描和 [lo, hi] 相交的分片，每个分片的 key 在读锁内复制出来，释放锁之后再交给 action。
+     * 扫描过程中 layout 被替换时，从下一个还没有扫描的 key 开始在新的 layout 上继续。
+     * 每个分片各自是一致的快照，整个扫描不是全局快照。
+     */
+    private void scan(K lo, K hi, Consumer<? super K> action) {
+        K from = lo;
+        List<K> keys = new ArrayList<>();
+        while (true) {
+            Layout<K> l = layout;
+            int i = from == null ? 0 : route(l.splits, from);
+            Shard<K> s = l.shards[i];
+            s.lock.readLock().lock();
+            try {
+                if (l != layout)
+                    continue;
+                RedBlackTree.Node<K> p = from == null ? s.tree.getFirstNode() : s.tree.ceilingNode(from);
+                for (; p != null && (hi == null || p.key.compareTo(hi) <= 0); p = RedBlackTree.successor(p))
+                    keys.add(p.key);
+            } finally {
+                s.lock.readLock().unlock();
+            }
+
+            keys.forEach(action);
+            keys.clear();
+            if (i == l.splits.length || (hi != null && l.splits[i].compareTo(hi) > 0))
+                return;
+            from = l.splits[i];
+        }
+    }
+
+    /**
+     * size 是 LongAdder，和 shardSize 不是同时读取的，其余分片的 key 数可能暂时算成负数，按 0 处理
+     */
+    private boolean skewed(int shardSize, Layout<K> l) {
+        int others = l.shards.length - 1;
+        if (shardSize < MIN_REBALANCE_SIZE || others == 0)
+            return false;
+        return shardSize > skew * Math.max(0, size.sum() - shardSize) / others;
+    }
+
+    /**
+     * 不加锁读取各个分片的 size，可能读到稍旧的值，只用于判断是否需要重新平衡，{@link #rebalance} 在所有分片的锁内重新计算
+     */
+    private static <K extends Comparable<? super K>> int largestShardSize(Layout<K> l) {
+        int largest = 0;
+        for (Shard<K> s : l.shards)
+            largest = Math.max(largest, s.size);
+        return largest;
+    }
+
+    /**
+     * @return a copy of the current split points, only read by tests.
+     */
+    K[] splits() {
+        return layout.splits.clone();
+    }
+
+    /**
+     * 锁住所有分片，按所有 key 的分位数重新计算分割点，重建分片之后替换 layout。
+     * 等待旧分片锁的操作获得锁之后会发现 layout 已经被替换，在新的 layout 上重试。
+     */
+    public void rebalance() {
+        rebalance(layout);
+    }
+
+    /**
+     * 多个线程同时发现分片倾斜时，只有第一个线程重建，其余线程发现 layout 已经被替换后直接返回
+     */
+    private synchronized void rebalance(Layout<K> old) {
+        if (old != layout)
+            return;
+
+        Shard<K>[] shards = old.shards;
+        for (Shard<K> s : shards)
+            s.lock.writeLock().lock();
+        try {
+            List<K> keys = new ArrayList<>();
+            for (Shard<K> s : shards) {
+                for (RedBlackTree.Node<K> p = s.tree.getFirstNode(); p != null; p = RedBlackTree.successor(p))
+                    keys.add(p.key);
+            }
+
+            int n = shards.length;
+            if (keys.size() < n)
+                return;
+
+            K[] splits = Arrays.copyOf(old.splits, n - 1);
+            for (int i = 1; i < n; i++)
+                splits[i - 1] = keys.get((int) ((long) i * keys.size() / n));
+
+            Layout<K> l = new Layout<>(splits);
+            int i = 0;
+            for (K key : keys) {
+                while (i < splits.length && key.compareTo(splits[i]) >= 0)
+                    i++;
+                l.shards[i].tree.insert(key);
+                l.shards[i].size++;
+            }
+            layout = l;
+        } finally {
+            for (int i = shards.length - 1; i >= 0; i--)
+                shards[i].lock.writeLock().unlock();
+        }
+    }
+
+    private static <K extends Comparable<? super K>> int route(K[] splits, K key) {
+        int lo = 0;
+        int hi = splits.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (key.compareTo(splits[mid]) >= 0)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+}
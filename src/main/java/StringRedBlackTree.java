@@ -0,0 +1,100 @@
+/**
+ * key 为字符串的红黑树，每个节点额外保存 key 的前 4 个 char 组成的 8 字节 big-endian 前缀。
+ *
+ * <pre>
+ * "tree"  -&gt; 0x0074_0072_0065_0065
+ * "red"   -&gt; 0x0072_0065_0064_0000   不足 4 个 char 时补 0
+ * </pre>
+ *
+ * 前缀按无符号 long 比较的结果和 {@link String#compareTo} 一致，查找时每一层先比较前缀，只在前缀相同时才调用
+ * {@link String#compareTo}，大多数层不需要访问 key 对象及其 char 数组，也没有虚方法调用。
+ */
+public class StringRedBlackTree extends RedBlackTree<String> {
+
+    static final class StringNode extends Node<String> {
+
+        final long prefix;
+
+        StringNode(String key, Node<String> parent) {
+            super(key, parent);
+            this.prefix = prefixOf(key);
+        }
+    }
+
+    static long prefixOf(String key) {
+        long prefix = 0;
+        int n = Math.min(key.length(), 4);
+        for (int i = 0; i < n; i++)
+            prefix |= (long) key.charAt(i) << (48 - 16 * i);
+        return prefix;
+    }
+
+    private static long prefix(Node<String> p) {
+        return ((StringNode) p).prefix;
+    }
+
+    /**
+     * 先比较前缀，前缀相同时再比较完整的字符串
+     */
+    private static int compare(String key, long prefix, Node<String> p) {
+        long q = prefix(p);
+        if (prefix != q)
+            return Long.compareUnsigned(prefix, q);
+        return key.compareTo(p.key);
+    }
+
+    /**
+     * @return Returns this entry for the given key
+     * @throws NullPointerException if the specified key is null
+     */
+    @Override
+    public Node<String> search(String key) {
+        long prefix = prefixOf(key);
+        Node<String> p = root;
+        while (p != null) {
+            int cmp = compare(key, prefix, p);
+            if (cmp < 0)
+                p = p.left;
+            else if (cmp > 0)
+                p = p.right;
+            else
+                return p;
+        }
+
+        return null;
+    }
+
+    /**
+     * @param key key of entry
+     * @return the exist entry or new entry with key {@code key}.
+     * @throws NullPointerException if the specified key is null
+     */
+    @Override
+    public Node<String> insert(String key) {
+        long prefix = prefixOf(key);
+        Node<String> t = root;
+        if (t == null)
+            return super.insert(key);
+
+        int cmp;
+        Node<String> parent;
+        do {
+            parent = t;
+            cmp = compare(key, prefix, t);
+            if (cmp < 0)
+                t = t.left;
+            else if (cmp > 0)
+                t = t.right;
+            else
+                return t;
+        } while (t != null);
+
+        return linkNode(key, parent, cmp);
+    }
+
+    @Override
+    Node<String> newNode(String key, Node<String> parent) {
+        return new StringNode(key, parent);
+    }
+
+}
@@ -0,0 +1,139 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongFunction;
+
+/**
+ * 回放 {@link TraceRecorder} 记录的 trace 文件，可以按记录时的时间间隔回放，也可以全速回放。
+ *
+ * 回放的目标是 {@link Target}，不限于红黑树，可以把同一个 trace 回放到 {@link java.util.TreeMap} 等其他实现上对比性能。
+ */
+public final class TraceReplayer {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * 超过此时间才 park 线程，更短的间隔自旋等待，避免 park 的唤醒延迟
+     */
+    private static final long PARK_THRESHOLD_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    public interface Target {
+
+        void insert(long key);
+
+        void remove(long key);
+
+        void search(long key);
+    }
+
+    private TraceReplayer() {
+    }
+
+    /**
+     * @param fromLong maps the long written into the trace back to the key of the tree
+     */
+    public static <K extends Comparable<? super K>> Target of(OrderedSet<K, ?> tree, LongFunction<K> fromLong) {
+        return new Target() {
+            @Override
+            public void insert(long key) {
+                tree.insert(fromLong.apply(key));
+            }
+
+            @Override
+            public void remove(long key) {
+                tree.remove(fromLong.apply(key));
+            }
+
+            @Override
+            public void search(long key) {
+                tree.search(fromLong.apply(key));
+            }
+        };
+    }
+
+    /**
+     * @param recordedTiming replays at the recorded timing if {@code true}, otherwise at full speed
+     * @return the number of operations replayed
+     * @throws IllegalArgumentException if the file is not a trace file, or {@code recordedTiming} is requested for a
+     *                                  trace recorded without timing
+     */
+    public static long replay(Path path, Target target, boolean recordedTiming) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            boolean eof = fill(channel, buffer);
+            if (buffer.remaining() < 5 || buffer.getInt() != TraceRecorder.MAGIC)
+                throw new IllegalArgumentException("not a trace file: " + path);
+
+            boolean timed = (buffer.get() & TraceRecorder.FLAG_TIMED) != 0;
+            if (recordedTiming && !timed)
+                throw new IllegalArgumentException("trace is recorded without timing: " + path);
+
+            long count = 0;
+            long key = 0;
+            long due = System.nanoTime();
+            while (true) {
+                if (!eof && buffer.remaining() < TraceRecorder.MAX_RECORD_SIZE) {
+                    buffer.compact();
+                    eof = fill(channel, buffer);
+                }
+                if (!buffer.hasRemaining())
+                    return count;
+
+                byte op = buffer.get();
+                key += TraceRecorder.unzigzag(TraceRecorder.readVarint(buffer));
+                if (timed) {
+                    long delta = TraceRecorder.readVarint(buffer);
+                    if (recordedTiming) {
+                        due += delta;
+                        awaitNanos(due);
+                    }
+                }
+
+                switch (op) {
+                    case TraceRecorder.OP_INSERT:
+                        target.insert(key);
+                        break;
+                    case TraceRecorder.OP_REMOVE:
+                        target.remove(key);
+                        break;
+                    case TraceRecorder.OP_SEARCH:
+                        target.search(key);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("unknown operation " + op + " in trace file: " + path);
+                }
+                count++;
+            }
+        }
+    }
+
+    /**
+     * 从 channel 读取数据直到 buffer 写满或者文件结束，返回之后 buffer 处于读模式
+     *
+     * @return whether the end of file is reached
+     */
+    private static boolean fill(FileChannel channel, ByteBuffer buffer) throws IOException {
+        boolean eof = false;
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                eof = true;
+                break;
+            }
+        }
+        buffer.flip();
+        return eof;
+    }
+
+    private static void awaitNanos(long due) {
+        long remaining;
+        while ((remaining = due - System.nanoTime()) > 0) {
+            if (remaining > PARK_THRESHOLD_NANOS)
+                LockSupport.parkNanos(remaining - PARK_THRESHOLD_NANOS);
+        }
+    }
+
+}
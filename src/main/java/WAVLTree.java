@@ -0,0 +1,389 @@
+import java.util.Comparator;
+
+/**
+ * WAVL (weak AVL) 树，Haeupler, Sen, Tarjan 的 rank-balanced tree。每个节点有一个 rank，缺失的节点 rank 为 -1。
+ *
+ * <pre>
+ * rank 差   父节点的 rank 减去子节点的 rank，只能是 1 或者 2
+ * 叶子节点  rank 为 0，即 1,1 节点
+ * </pre>
+ *
+ * 只有插入时 rank 就是 AVL 树的高度，高度不超过 1.44 log(n)；有删除时高度不超过 2 log(n)，和红黑树相同。
+ * 插入和删除都是先向上修改 rank，最后最多 2 次旋转，删除不会像 AVL 树那样一路旋转到根节点，
+ * 并且修改 rank 的摊还代价是 O(1)。
+ *
+ * 和 {@link RedBlackTree} 一样，删除有 2 个子节点的节点时和后继节点交换位置，而不是复制 key，节点可以作为句柄使用。
+ */
+public class WAVLTree<K extends Comparable<? super K>> implements OrderedSet<K, WAVLTree.Node<K>> {
+
+    final Comparator<? super K> comparator;
+
+    transient Node<K> root;
+    transient Node<K> first;
+    transient Node<K> last;
+
+    /**
+     * The number of rotations so far, only read by benchmarks that compare balancing strategies.
+     */
+    transient long rotations;
+
+    static final class Node<K> {
+        K key;
+        Node<K> left;
+        Node<K> right;
+        Node<K> parent;
+        int rank;
+
+        Node(K key, Node<K> parent) {
+            this.key = key;
+            this.parent = parent;
+        }
+    }
+
+    public WAVLTree() {
+        comparator = null;
+    }
+
+    public WAVLTree(Comparator<? super K> comparator) {
+        this.comparator = comparator;
+    }
+
+    @Override
+    public Node<K> search(K key) {
+        if (key == null)
+            throw new NullPointerException();
+
+        Node<K> p = root;
+        while (p != null) {
+            int cmp = compare(key, p.key);
+            if (cmp < 0)
+                p = p.left;
+            else if (cmp > 0)
+                p = p.right;
+            else
+                return p;
+        }
+        return null;
+    }
+
+    @Override
+    public Node<K> insert(K key) {
+        if (key == null)
+            throw new NullPointerException();
+
+        Node<K> t = root;
+        if (t == null) {
+            root = first = last = new Node<>(key, null);
+            return root;
+        }
+
+        int cmp;
+        Node<K> parent;
+        do {
+            parent = t;
+            cmp = compare(key, t.key);
+            if (cmp < 0)
+                t = t.left;
+            else if (cmp > 0)
+                t = t.right;
+            else
+                return t;
+        } while (t != null);
+
+        Node<K> e = new Node<>(key, parent);
+        if (cmp < 0) {
+            parent.left = e;
+            if (parent == first)
+                first = e;
+        } else {
+            parent.right = e;
+            if (parent == last)
+                last = e;
+        }
+        fixAfterInsertion(e);
+        return e;
+    }
+
+    @Override
+    public Node<K> remove(K key) {
+        Node<K> p = search(key);
+        if (p == null)
+            return null;
+
+        remove(p);
+        return p;
+    }
+
+    @Override
+    public void remove(Node<K> p) {
+        if (p.parent == null && p != root)
+            throw new IllegalArgumentException("node is not in the tree");
+
+        if (p == first)
+            first = successor(p);
+        if (p == last)
+            last = predecessor(p);
+        if (p.left != null && p.right != null)
+            swapWithSuccessor(p, successor(p));
+
+        Node<K> replacement = p.left != null ? p.left : p.right;
+        Node<K> parent = p.parent;
+        if (replacement != null)
+            replacement.parent = parent;
+        if (parent == null)
+            root = replacement;
+        else if (p == parent.left)
+            parent.left = replacement;
+        else
+            parent.right = replacement;
+        p.left = p.right = p.parent = null;
+
+        if (parent != null)
+            fixAfterDeletion(replacement, parent);
+    }
+
+    @Override
+    public Node<K> getFirstNode() {
+        return first;
+    }
+
+    @Override
+    public Node<K> getLastNode() {
+        return last;
+    }
+
+    @Override
+    public Node<K> next(Node<K> node) {
+        return successor(node);
+    }
+
+    @Override
+    public Node<K> previous(Node<K> node) {
+        return predecessor(node);
+    }
+
+    @Override
+    public K keyOf(Node<K> node) {
+        return node.key;
+    }
+
+    final int compare(K k1, K k2) {
+        return comparator == null ? k1.compareTo(k2) : comparator.compare(k1, k2);
+    }
+
+    static <K> Node<K> successor(Node<K> t) {
+        if (t == null)
+            return null;
+        else if (t.right != null) {
+            Node<K> p = t.right;
+            while (p.left != null)
+                p = p.left;
+            return p;
+        } else {
+            Node<K> p = t.parent;
+            Node<K> ch = t;
+            while (p != null && ch == p.right) {
+                ch = p;
+                p = p.parent;
+            }
+            return p;
+        }
+    }
+
+    static <K> Node<K> predecessor(Node<K> t) {
+        if (t == null)
+            return null;
+        else if (t.left != null) {
+            Node<K> p = t.left;
+            while (p.right != null)
+                p = p.right;
+            return p;
+        } else {
+            Node<K> p = t.parent;
+            Node<K> ch = t;
+            while (p != null && ch == p.left) {
+                ch = p;
+                p = p.parent;
+            }
+            return p;
+        }
+    }
+
+    private static <K> int rankOf(Node<K> p) {
+        return p == null ? -1 : p.rank;
+    }
+
+    /**
+     * 新的叶子节点 x 的 rank 为 0，父节点原来是叶子时 x 变成 0 子节点 (rank 差为 0)，向上修复：
+     *
+     * <pre>
+     * 父节点是 0,1 节点      提升父节点的 rank，问题上移到父节点
+     * 父节点是 0,2 节点      x 的内侧子节点是 2 子节点时对父节点单旋转，否则对 x 和父节点双旋转，修复结束
+     * </pre>
+     */
+    private void fixAfterInsertion(Node<K> x) {
+        for (Node<K> p = x.parent; p != null && p.rank == x.rank; p = x.parent) {
+            Node<K> sibling = x == p.left ? p.right : p.left;
+            if (p.rank - rankOf(sibling) == 1) {
+                p.rank++;
+                x = p;
+                continue;
+            }
+
+            Node<K> y = x == p.left ? x.right : x.left;  // x 的内侧子节点
+            if (x.rank - rankOf(y) == 2) {
+                if (x == p.left)
+                    rotateRight(p);
+                else
+                    rotateLeft(p);
+                p.rank--;
+            } else {
+                if (x == p.left) {
+                    rotateLeft(x);
+                    rotateRight(p);
+                } else {
+                    rotateRight(x);
+                    rotateLeft(p);
+                }
+                y.rank++;
+                x.rank--;
+                p.rank--;
+            }
+            return;
+        }
+    }
+
+    /**
+     * 删除节点之后，x 是替代被删除节点的子节点 (可以为 null)，parent 是它的父节点。
+     * parent 变成 2,2 叶子时先降低它的 rank，之后 x 是 3 子节点 (rank 差为 3) 时向上修复，s 为 x 的兄弟节点：
+     *
+     * <pre>
+     * s 是 2 子节点                 降低父节点的 rank，问题上移到父节点
+     * s 的两个子节点都是 2 子节点   同时降低 s 和父节点的 rank，问题上移到父节点
+     * s 的外侧子节点是 1 子节点     对父节点单旋转，修复结束
+     * s 的外侧子节点是 2 子节点     对 s 和父节点双旋转，修复结束
+     * </pre>
+     */
+    private void fixAfterDeletion(Node<K> x, Node<K> parent) {
+        if (x == null && parent.left == null && parent.right == null) {
+            parent.rank = 0;
+            x = parent;
+            parent = x.parent;
+        }
+
+        for (Node<K> p = parent; p != null && p.rank - rankOf(x) == 3; p = x.parent) {
+            boolean left = x == p.left;
+            Node<K> s = left ? p.right : p.left;
+            if (p.rank - s.rank == 2) {
+                p.rank--;
+                x = p;
+                continue;
+            }
+
+            Node<K> outer = left ? s.right : s.left;
+            Node<K> inner = left ? s.left : s.right;
+            if (s.rank - rankOf(outer) == 2 && s.rank - rankOf(inner) == 2) {
+                s.rank--;
+                p.rank--;
+                x = p;
+                continue;
+            }
+
+            if (s.rank - rankOf(outer) == 1) {
+                if (left)
+                    rotateLeft(p);
+                else
+                    rotateRight(p);
+                s.rank++;
+                p.rank--;
+                if (p.left == null && p.right == null)
+                    p.rank--;
+            } else {
+                if (left) {
+                    rotateRight(s);
+                    rotateLeft(p);
+                } else {
+                    rotateLeft(s);
+                    rotateRight(p);
+                }
+                inner.rank += 2;
+                s.rank--;
+                p.rank -= 2;
+            }
+            return;
+        }
+    }
+
+    private void rotateLeft(Node<K> p) {
+        Node<K> r = p.right;
+        p.right = r.left;
+        if (r.left != null)
+            r.left.parent = p;
+        r.parent = p.parent;
+        if (p.parent == null)
+            root = r;
+        else if (p.parent.left == p)
+            p.parent.left = r;
+        else
+            p.parent.right = r;
+        r.left = p;
+        p.parent = r;
+        rotations++;
+    }
+
+    private void rotateRight(Node<K> p) {
+        Node<K> l = p.left;
+        p.left = l.right;
+        if (l.right != null)
+            l.right.parent = p;
+        l.parent = p.parent;
+        if (p.parent == null)
+            root = l;
+        else if (p.parent.right == p)
+            p.parent.right = l;
+        else
+            p.parent.left = l;
+        l.right = p;
+        p.parent = l;
+        rotations++;
+    }
+
+    /**
+     * 交换 p 和它的后继节点 s 在树中的位置和 rank，见 {@link RedBlackTree} 中的同名方法
+     */
+    private void swapWithSuccessor(Node<K> p, Node<K> s) {
+        Node<K> parent = p.parent;
+        Node<K> sParent = s.parent;
+        Node<K> sRight = s.right;
+
+        s.left = p.left;
+        s.left.parent = s;
+        s.parent = parent;
+        if (parent == null)
+            root = s;
+        else if (p == parent.left)
+            parent.left = s;
+        else
+            parent.right = s;
+
+        if (sParent == p) {
+            s.right = p;
+            p.parent = s;
+        } else {
+            s.right = p.right;
+            s.right.parent = s;
+            sParent.left = p;
+            p.parent = sParent;
+        }
+
+        p.left = null;
+        p.right = sRight;
+        if (sRight != null)
+            sRight.parent = p;
+
+        int rank = p.rank;
+        p.rank = s.rank;
+        s.rank = rank;
+    }
+
+}
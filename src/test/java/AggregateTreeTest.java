@@ -0,0 +1,48 @@
+import java.util.Random;
+import java.util.TreeSet;
+
+public class AggregateTreeTest {
+
+    public static void main(String[] args) {
+        Random random = new Random(2019);
+        AggregateTree<Integer, Long> sum = new AggregateTree<>(Integer::longValue, 0L, Long::sum);
+        AggregateTree<Integer, Integer> min = new AggregateTree<>(k -> k, Integer.MAX_VALUE, Math::min);
+        // 字符串拼接不满足交换律，用来检查组合顺序
+        AggregateTree<Integer, String> concat = new AggregateTree<>(k -> k + ",", "", String::concat);
+        TreeSet<Integer> expected = new TreeSet<>();
+
+        for (int round = 0; round < 20000; round++) {
+            int key = random.nextInt(500);
+            if (random.nextInt(3) == 0) {
+                sum.remove(key);
+                min.remove(key);
+                concat.remove(key);
+                expected.remove(key);
+            } else {
+                sum.insert(key);
+                min.insert(key);
+                concat.insert(key);
+                expected.add(key);
+            }
+
+            int lo = random.nextInt(520) - 10;
+            int hi = lo + random.nextInt(200) - 20;
+            long s = 0;
+            int m = Integer.MAX_VALUE;
+            StringBuilder c = new StringBuilder();
+            if (lo <= hi) {
+                for (int k : expected.subSet(lo, true, hi, true)) {
+                    s += k;
+                    m = Math.min(m, k);
+                    c.append(k).append(',');
+                }
+            }
+            RedBlackTreeTest.check(sum.aggregate(lo, hi) == s, "sum " + lo + " " + hi);
+            RedBlackTreeTest.check(min.aggregate(lo, hi) == m, "min " + lo + " " + hi);
+            RedBlackTreeTest.check(concat.aggregate(lo, hi).equals(c.toString()), "concat " + lo + " " + hi);
+        }
+
+        System.out.printf("sum of all keys: %d, min key: %d%n", sum.aggregate(), min.aggregate());
+    }
+
+}
@@ -0,0 +1,110 @@
+import java.util.Random;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * 对比 {@link RedBlackTree}、{@link AVLTree} 和 {@link WAVLTree} 三种平衡策略的查找深度、旋转次数和查找吞吐量。
+ *
+ * <pre>
+ * java -Xmx2g -cp target/classes:target/test-classes BalancingBenchmark
+ * </pre>
+ *
+ * 每种树先插入 n 个随机 key，再做 n 次删除一个已有 key、插入一个新 key 的交替操作，分别统计插入和删除的平均旋转次数，
+ * 之后统计所有 key 的平均深度和最大深度 (根节点深度为 1)，最后测量查找吞吐量，查找的 key 一半存在一半不存在。
+ */
+public class BalancingBenchmark {
+
+    private static final int[] SIZES = {1_000, 100_000, 1_000_000};
+    private static final int LOOKUPS = 5_000_000;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) {
+        System.out.printf("%-14s %10s %12s %12s %10s %10s %14s%n",
+                "tree", "keys", "rot/insert", "rot/delete", "avg depth", "max depth", "lookups/us");
+        for (int size : SIZES) {
+            CountingRedBlackTree redBlack = new CountingRedBlackTree();
+            run("RedBlackTree", size, redBlack, key -> redBlack.search(key) != null,
+                    () -> redBlack.augments / 2, () -> redBlack.root, p -> p.left, p -> p.right);
+            AVLTree<Integer> avl = new AVLTree<>();
+            run("AVLTree", size, avl, key -> avl.search(key) != null,
+                    () -> avl.rotations, () -> avl.root, p -> p.left, p -> p.right);
+            WAVLTree<Integer> wavl = new WAVLTree<>();
+            run("WAVLTree", size, wavl, key -> wavl.search(key) != null,
+                    () -> wavl.rotations, () -> wavl.root, p -> p.left, p -> p.right);
+            System.out.println();
+        }
+    }
+
+    /**
+     * 查找通过每种树各自的 lambda 调用，lambda 内的 search 调用点只见过一种树，可以内联，不会因为三种树共用一个调用点而变成虚方法调用
+     */
+    private static <N> void run(String name, int size, OrderedSet<Integer, N> tree, Predicate<Integer> contains,
+                                LongSupplier rotations, Supplier<N> root, UnaryOperator<N> left, UnaryOperator<N> right) {
+        Random random = new Random(size);
+        int[] keys = new int[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = random.nextInt() & ~1; // 偶数存在
+            tree.insert(keys[i]);
+        }
+        long insertRotations = rotations.getAsLong();
+
+        long deleteRotations = 0;
+        for (int i = 0; i < size; i++) {
+            int j = random.nextInt(size);
+            long before = rotations.getAsLong();
+            tree.remove(keys[j]);
+            deleteRotations += rotations.getAsLong() - before;
+            before = rotations.getAsLong();
+            keys[j] = random.nextInt() & ~1;
+            tree.insert(keys[j]);
+            insertRotations += rotations.getAsLong() - before;
+        }
+
+        long[] depth = new long[3]; // 节点数, 深度之和, 最大深度
+        depths(root.get(), 1, left, right, depth);
+
+        Integer[] lookups = new Integer[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++)
+            lookups[i] = keys[random.nextInt(size)] | random.nextInt(2);
+        long best = Long.MAX_VALUE;
+        int found = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            found = 0;
+            for (Integer key : lookups) {
+                if (contains.test(key))
+                    found++;
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+
+        System.out.printf("%-14s %10d %12.3f %12.3f %10.2f %10d %14.1f   (found %d)%n", name, size,
+                (double) insertRotations / (2 * size), (double) deleteRotations / size,
+                (double) depth[1] / depth[0], depth[2], LOOKUPS * 1000.0 / best, found);
+    }
+
+    private static <N> void depths(N node, int depth, UnaryOperator<N> left, UnaryOperator<N> right, long[] result) {
+        if (node == null)
+            return;
+        result[0]++;
+        result[1] += depth;
+        result[2] = Math.max(result[2], depth);
+        depths(left.apply(node), depth + 1, left, right, result);
+        depths(right.apply(node), depth + 1, left, right, result);
+    }
+
+    /**
+     * 红黑树本身不计旋转次数，免得每次旋转都多写一个字段。普通红黑树插入和删除时只在旋转中调用
+     * {@link RedBlackTree#augment}，每次旋转调用两次，这里通过它计数。
+     */
+    private static final class CountingRedBlackTree extends RedBlackTree<Integer> {
+        long augments;
+
+        @Override
+        void augment(Node<Integer> x) {
+            augments++;
+        }
+    }
+}
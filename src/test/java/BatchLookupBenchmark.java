@@ -0,0 +1,86 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * 对比 k 次独立的 {@link RedBlackTree#search} 和一次 {@link RedBlackTree#searchAll} 的比较次数和吞吐量。
+ *
+ * <pre>
+ * java -Xmx2g -cp target/classes:target/test-classes BatchLookupBenchmark
+ * </pre>
+ *
+ * 树中有 100 万个随机 key，每个批次的 key 一半存在一半不存在，批次事先排好序，排序的时间不计入。
+ * 比较次数用一棵使用计数比较器的树统计，吞吐量用自然顺序的树测量，取多轮中最快的一轮。
+ */
+public class BatchLookupBenchmark {
+
+    private static final int SIZE = 1_000_000;
+    private static final int[] BATCH_SIZES = {16, 256, 4096, 65536};
+    private static final int KEYS_PER_ROUND = 4_000_000;
+    private static final int ROUNDS = 5;
+
+    private static long comparisons;
+
+    public static void main(String[] args) {
+        Random random = new Random(SIZE);
+        int[] keys = new int[SIZE];
+        RedBlackTree<Integer> tree = new RedBlackTree<>();
+        RedBlackTree<Integer> counting = new RedBlackTree<>((a, b) -> {
+            comparisons++;
+            return Integer.compare(a, b);
+        });
+        for (int i = 0; i < SIZE; i++) {
+            keys[i] = random.nextInt() & ~1; // 偶数存在
+            tree.insert(keys[i]);
+            counting.insert(keys[i]);
+        }
+
+        System.out.printf("%10s %16s %16s %16s %16s%n", "batch", "search cmp/key", "searchAll cmp/key",
+                "search keys/us", "searchAll keys/us");
+        for (int batchSize : BATCH_SIZES) {
+            Integer[][] batches = new Integer[KEYS_PER_ROUND / batchSize][batchSize];
+            for (Integer[] batch : batches) {
+                for (int i = 0; i < batchSize; i++)
+                    batch[i] = keys[random.nextInt(SIZE)] | random.nextInt(2);
+                Arrays.sort(batch);
+            }
+            @SuppressWarnings("unchecked")
+            RedBlackTree.Node<Integer>[] results = (RedBlackTree.Node<Integer>[]) new RedBlackTree.Node<?>[batchSize];
+
+            comparisons = 0;
+            for (Integer key : batches[0])
+                counting.search(key);
+            double searchComparisons = (double) comparisons / batchSize;
+            comparisons = 0;
+            counting.searchAll(batches[0], results);
+            double searchAllComparisons = (double) comparisons / batchSize;
+
+            long search = Long.MAX_VALUE;
+            long searchAll = Long.MAX_VALUE;
+            int found = 0;
+            for (int round = 0; round < ROUNDS; round++) {
+                long start = System.nanoTime();
+                for (Integer[] batch : batches) {
+                    for (int i = 0; i < batch.length; i++)
+                        results[i] = tree.search(batch[i]);
+                }
+                search = Math.min(search, System.nanoTime() - start);
+
+                start = System.nanoTime();
+                for (Integer[] batch : batches)
+                    tree.searchAll(batch, results);
+                searchAll = Math.min(searchAll, System.nanoTime() - start);
+
+                found = 0;
+                for (RedBlackTree.Node<Integer> node : results) {
+                    if (node != null)
+                        found++;
+                }
+            }
+
+            System.out.printf("%10d %16.1f %16.1f %16.1f %16.1f   (found %d in last batch)%n", batchSize,
+                    searchComparisons, searchAllComparisons,
+                    batches.length * batchSize * 1000.0 / search, batches.length * batchSize * 1000.0 / searchAll, found);
+        }
+    }
+
+}
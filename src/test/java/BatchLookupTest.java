@@ -0,0 +1,113 @@
+import java.util.Arrays;
+import java.util.Random;
+import java.util.TreeSet;
+
+/**
+ * 随机批量查找，和 {@link TreeSet} 比较 {@link RedBlackTree#searchAll} 和 {@link RedBlackTree#containsAll} 的结果。
+ * 树中只有偶数 key，批次中的奇数 key 以及小于最小 key、大于最大 key 的 key 都不存在，批次可以有重复的 key，
+ * 大小从 0 到几千，长度 1 到 2 的批次和子批次从当前节点逐个下降。
+ */
+public class BatchLookupTest {
+
+    private static final int RANGE = 4000;
+
+    public static void main(String[] args) {
+        Random random = new Random(2019);
+        for (int round = 0; round < 300; round++) {
+            RedBlackTree<Integer> tree;
+            if (round % 3 == 0)
+                tree = new RedBlackTree<>();
+            else if (round % 3 == 1)
+                tree = new RedBlackTree<>(Integer::compare);
+            else
+                tree = new HashIndexedRedBlackTree<>();
+            TreeSet<Integer> expected = new TreeSet<>();
+            int size = round % 10 == 0 ? 0 : random.nextInt(2000);
+            for (int i = 0; i < size; i++) {
+                int key = random.nextInt(RANGE / 2) * 2;
+                tree.insert(key);
+                expected.add(key);
+            }
+
+            int batch = round % 5 == 0 ? random.nextInt(3) : random.nextInt(3000);
+            Integer[] keys = new Integer[batch];
+            for (int i = 0; i < batch; i++)
+                keys[i] = random.nextInt(RANGE + 20) - 10;
+            Arrays.sort(keys);
+            check(tree, expected, keys);
+
+            // 只包含存在的 key，containsAll 要遍历整个批次
+            Integer[] present = expected.stream().filter(k -> random.nextBoolean()).toArray(Integer[]::new);
+            check(tree, expected, present);
+        }
+
+        checkArguments(new RedBlackTree<>());
+        checkArguments(new HashIndexedRedBlackTree<>());
+        checkEarlyStop();
+        System.out.println("searchAll/containsAll random check finished.");
+    }
+
+    private static void check(RedBlackTree<Integer> tree, TreeSet<Integer> expected, Integer[] keys) {
+        RedBlackTree.Node<Integer> sentinel = new RedBlackTree.Node<>(-1, null);
+        int extra = keys.length % 3;
+        RedBlackTree.Node<Integer>[] results = newResults(keys.length + extra);
+        Arrays.fill(results, sentinel);
+        tree.searchAll(keys, results);
+
+        boolean all = true;
+        for (int i = 0; i < keys.length; i++) {
+            boolean contains = expected.contains(keys[i]);
+            all &= contains;
+            RedBlackTreeTest.check(contains ? results[i] == tree.search(keys[i]) && results[i] != null : results[i] == null,
+                    "searchAll of " + keys[i] + " at " + i);
+        }
+        for (int i = keys.length; i < results.length; i++)
+            RedBlackTreeTest.check(results[i] == sentinel, "results[" + i + "] beyond the keys was written");
+        RedBlackTreeTest.check(tree.containsAll(keys) == all, "containsAll of " + keys.length + " keys");
+    }
+
+    private static void checkArguments(RedBlackTree<Integer> tree) {
+        for (int i = 0; i < 100; i++)
+            tree.insert(i);
+        try {
+            tree.searchAll(new Integer[]{1, 2, 3}, newResults(2));
+            throw new AssertionError("results shorter than keys accepted");
+        } catch (IllegalArgumentException expected) {
+            // results 比 keys 短
+        }
+        tree.searchAll(new Integer[0], newResults(0));
+        RedBlackTreeTest.check(tree.containsAll(new Integer[0]), "containsAll of an empty batch");
+        RedBlackTreeTest.check(new RedBlackTree<Integer>().containsAll(new Integer[0]), "empty batch on an empty tree");
+        RedBlackTreeTest.check(!new RedBlackTree<Integer>().containsAll(new Integer[]{1}), "key in an empty tree");
+    }
+
+    /**
+     * 第一个 key 不存在时，containsAll 的比较次数应该远少于遍历整个批次的 searchAll
+     */
+    private static void checkEarlyStop() {
+        long[] comparisons = new long[1];
+        RedBlackTree<Integer> tree = new RedBlackTree<>((a, b) -> {
+            comparisons[0]++;
+            return Integer.compare(a, b);
+        });
+        Integer[] keys = new Integer[10001];
+        keys[0] = -1;
+        for (int i = 0; i < 10000; i++) {
+            tree.insert(i);
+            keys[i + 1] = i;
+        }
+
+        comparisons[0] = 0;
+        tree.searchAll(keys, newResults(keys.length));
+        long full = comparisons[0];
+        comparisons[0] = 0;
+        RedBlackTreeTest.check(!tree.containsAll(keys), "containsAll with a missing key");
+        RedBlackTreeTest.check(comparisons[0] * 10 < full, "containsAll did not stop early: " + comparisons[0] + " of " + full + " comparisons");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static RedBlackTree.Node<Integer>[] newResults(int length) {
+        return (RedBlackTree.Node<Integer>[]) new RedBlackTree.Node<?>[length];
+    }
+
+}
@@ -0,0 +1,171 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 多个线程同时通过 {@link BatchingTreeWriter} 提交操作，每个线程只操作自己的 key，所以每个线程的结果可以和各自的
+ * {@link TreeSet} 逐个对比。之后检查压缩、关闭时的竞争和关闭之后的提交。
+ */
+public class BatchingTreeWriterTest {
+
+    private static final int THREADS = 4;
+    private static final int OPERATIONS = 20000;
+
+    public static void main(String[] args) throws Exception {
+        RedBlackTree<Integer> tree = new RedBlackTree<>();
+        BatchingTreeWriter<Integer> writer = new BatchingTreeWriter<>(tree, 64, 1, TimeUnit.MILLISECONDS);
+        List<TreeSet<Integer>> expected = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        List<Throwable> errors = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            TreeSet<Integer> set = new TreeSet<>();
+            expected.add(set);
+            int thread = t;
+            threads.add(new Thread(() -> {
+                try {
+                    submit(writer, thread, set);
+                } catch (Throwable e) {
+                    synchronized (errors) {
+                        errors.add(e);
+                    }
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (int i = 0; i < 10; i++) {
+            writer.compact().get(10, TimeUnit.SECONDS);
+            RedBlackTreeTest.check(writer.read(t -> t.containsAll(new Integer[0])), "read during writes");
+        }
+        for (Thread t : threads)
+            t.join();
+        RedBlackTreeTest.check(errors.isEmpty(), "errors " + errors);
+
+        writer.compact().get(10, TimeUnit.SECONDS);
+        TreeSet<Integer> all = new TreeSet<>();
+        expected.forEach(all::addAll);
+        List<Integer> keys = writer.read(BatchingTreeWriterTest::keys);
+        RedBlackTreeTest.check(keys.equals(new ArrayList<>(all)), "keys after compact");
+        RedBlackTreeTest.checkInvariants(tree);
+        writer.close();
+        checkRejected(writer.insert(1));
+        checkRejected(writer.compact());
+
+        closeRace();
+        throwingComparator();
+        System.out.println("BatchingTreeWriter check with " + THREADS + " threads finished, " + all.size() + " keys.");
+    }
+
+    /**
+     * 线程 t 只使用 key % THREADS == t 的 key，同一个线程的操作按提交顺序生效，结果和它自己的 TreeSet 一致
+     */
+    private static void submit(BatchingTreeWriter<Integer> writer, int thread, TreeSet<Integer> set) throws Exception {
+        Random random = new Random(thread);
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+        List<Boolean> results = new ArrayList<>();
+        for (int i = 0; i < OPERATIONS; i++) {
+            int key = random.nextInt(2000) * THREADS + thread;
+            if (random.nextInt(3) == 0) {
+                futures.add(writer.remove(key));
+                results.add(set.remove(key));
+            } else {
+                futures.add(writer.insert(key));
+                results.add(set.add(key));
+            }
+        }
+        for (int i = 0; i < futures.size(); i++)
+            RedBlackTreeTest.check(futures.get(i).get(10, TimeUnit.SECONDS).equals(results.get(i)), "result of operation " + i);
+    }
+
+    /**
+     * close() 和提交同时发生时，每个 future 都必须完成：要么被应用，要么以 IllegalStateException 失败
+     */
+    private static void closeRace() throws Exception {
+        for (int round = 0; round < 20; round++) {
+            BatchingTreeWriter<Integer> writer = new BatchingTreeWriter<Integer>(new RedBlackTree<>(), 16, 0, TimeUnit.MILLISECONDS);
+            List<CompletableFuture<?>> futures = new ArrayList<>();
+            CountDownLatch started = new CountDownLatch(1);
+            Thread submitter = new Thread(() -> {
+                started.countDown();
+                for (int i = 0; i < 5000; i++) {
+                    CompletableFuture<?> f = i % 1000 == 0 ? writer.compact() : writer.insert(i);
+                    synchronized (futures) {
+                        futures.add(f);
+                    }
+                }
+            });
+            submitter.start();
+            started.await();
+            writer.close();
+            submitter.join();
+            for (CompletableFuture<?> f : futures) {
+                try {
+                    f.get(10, TimeUnit.SECONDS);
+                } catch (ExecutionException e) {
+                    RedBlackTreeTest.check(e.getCause() instanceof IllegalStateException, "unexpected failure " + e.getCause());
+                } catch (TimeoutException e) {
+                    throw new AssertionError("future never completed after close", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * 比较器对 key 13 抛出异常：排序失败时整批按提交顺序应用，只有 13 的操作以原来的异常失败，写线程继续处理之后的提交
+     */
+    private static void throwingComparator() throws Exception {
+        RedBlackTree<Integer> tree = new RedBlackTree<>((a, b) -> {
+            if (a == 13 || b == 13)
+                throw new UnsupportedOperationException("compare " + a + " with " + b);
+            return Integer.compare(a, b);
+        });
+        BatchingTreeWriter<Integer> writer = new BatchingTreeWriter<>(tree, 64, 50, TimeUnit.MILLISECONDS);
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+        for (int i = 1; i <= 20; i++)
+            futures.add(writer.insert(i));
+        for (int i = 1; i <= 20; i++) {
+            try {
+                RedBlackTreeTest.check(futures.get(i - 1).get(10, TimeUnit.SECONDS), "insert " + i);
+                RedBlackTreeTest.check(i != 13, "insert 13 succeeded");
+            } catch (ExecutionException e) {
+                RedBlackTreeTest.check(i == 13 && e.getCause() instanceof UnsupportedOperationException, "insert " + i + " failed with " + e.getCause());
+            }
+        }
+
+        // 写线程仍然在运行，之后单独提交的操作照常完成
+        RedBlackTreeTest.check(!writer.insert(4).get(10, TimeUnit.SECONDS), "insert 4 after the failed batch");
+        try {
+            writer.remove(13).get(10, TimeUnit.SECONDS);
+            throw new AssertionError("remove 13 succeeded");
+        } catch (ExecutionException e) {
+            RedBlackTreeTest.check(e.getCause() instanceof UnsupportedOperationException, "remove 13 failed with " + e.getCause());
+        }
+        RedBlackTreeTest.check(writer.remove(20).get(10, TimeUnit.SECONDS), "remove 20");
+        List<Integer> keys = writer.read(BatchingTreeWriterTest::keys);
+        RedBlackTreeTest.check(keys.size() == 18 && !keys.contains(13) && !keys.contains(20), "keys " + keys);
+        writer.close();
+        checkRejected(writer.insert(1));
+    }
+
+    private static void checkRejected(CompletableFuture<?> future) throws Exception {
+        try {
+            future.get(10, TimeUnit.SECONDS);
+            throw new AssertionError("accepted after close");
+        } catch (ExecutionException e) {
+            RedBlackTreeTest.check(e.getCause() instanceof IllegalStateException, "unexpected failure " + e.getCause());
+        }
+    }
+
+    private static List<Integer> keys(RedBlackTree<Integer> tree) {
+        List<Integer> keys = new ArrayList<>();
+        for (RedBlackTree.Node<Integer> p = tree.getFirstNode(); p != null; p = tree.next(p))
+            keys.add(p.key);
+        return keys;
+    }
+
+}
@@ -0,0 +1,83 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 对比多个线程通过 {@link BatchingTreeWriter} 修改红黑树和每个操作都获取写锁直接修改红黑树的吞吐量。
+ *
+ * <pre>
+ * java -Xmx2g -cp target/classes:target/test-classes BatchingWriterBenchmark
+ * </pre>
+ *
+ * 树中先有 n 个随机 key，每个线程做随机的插入和删除，各占一半。通过 writer 提交时每个线程最多保留 WINDOW 个未完成的操作，
+ * 超过时等待最早的一个完成；加锁的方式每个操作都同步完成。结果和 CPU 核数有关，单核机器上只能看出批量处理本身的开销。
+ */
+public class BatchingWriterBenchmark {
+
+    private static final int SIZE = 1_000_000;
+    private static final int OPERATIONS_PER_THREAD = 500_000;
+    private static final int[] THREADS = {1, 2, 4, 8};
+    private static final int WINDOW = 256;
+
+    public static void main(String[] args) throws Exception {
+        System.out.printf("cpus: %d%n", Runtime.getRuntime().availableProcessors());
+        System.out.printf("%8s %18s %18s%n", "threads", "write lock ops/us", "writer ops/us");
+        for (int threads : THREADS) {
+            double locked = run(threads, false);
+            double batched = run(threads, true);
+            System.out.printf("%8d %18.2f %18.2f%n", threads, locked, batched);
+        }
+    }
+
+    private static double run(int threads, boolean batching) throws Exception {
+        RedBlackTree<Integer> tree = new RedBlackTree<>();
+        Random random = new Random(SIZE);
+        for (int i = 0; i < SIZE; i++)
+            tree.insert(random.nextInt());
+
+        ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        BatchingTreeWriter<Integer> writer = batching ? new BatchingTreeWriter<>(tree, 256, 50, TimeUnit.MICROSECONDS) : null;
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Random r = new Random(t);
+            workers.add(new Thread(() -> {
+                Queue<CompletableFuture<Boolean>> pending = new ArrayDeque<>();
+                for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                    int key = r.nextInt();
+                    boolean insert = r.nextBoolean();
+                    if (batching) {
+                        if (pending.size() == WINDOW)
+                            pending.poll().join();
+                        pending.add(insert ? writer.insert(key) : writer.remove(key));
+                    } else {
+                        lock.writeLock().lock();
+                        try {
+                            if (insert)
+                                tree.add(key);
+                            else
+                                tree.remove(key);
+                        } finally {
+                            lock.writeLock().unlock();
+                        }
+                    }
+                }
+                pending.forEach(CompletableFuture::join);
+            }));
+        }
+
+        long start = System.nanoTime();
+        workers.forEach(Thread::start);
+        for (Thread w : workers)
+            w.join();
+        long elapsed = System.nanoTime() - start;
+        if (writer != null)
+            writer.close();
+        return (double) threads * OPERATIONS_PER_THREAD * 1000 / elapsed;
+    }
+
+}
@@ -0,0 +1,132 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntFunction;
+
+/**
+ * 测量 {@link RedBlackTree#compact()} 前后的查找吞吐量。
+ *
+ * <pre>
+ * java -Xmx3g -XX:+UseParallelGC -cp target/classes:target/test-classes CompactionBenchmark [RedBlackTree|StringRedBlackTree] [filler bytes]
+ * </pre>
+ *
+ * 先按随机顺序插入 n 个 key，再做 2n 次随机的删除和插入，节点在堆中的位置和它在树中的位置基本无关。
+ * 每次插入的同时分配一个 filler 字节 (默认 200) 的数组并一直保留，代替应用在两次插入之间分配的其他存活对象。
+ * 如果只分配节点和 key，节点在堆中本来就是紧密排列的，GC 复制时也会把节点和它引用的 key 放在一起，
+ * 整理没有可以改进的地方 (filler 为 0 时的结果在测量误差之内)。
+ * 之后依次测量 4 种状态的查找吞吐量：整理之前、不整理只做一次 full GC、整理之后、整理之后再做一次 full GC。
+ * full GC 本身也会移动节点，所以只比较同一条件下的两列：整理之后和整理之前，两者都做过 full GC 之后的整理和不整理。
+ *
+ * <pre>
+ * 单核机器，ParallelGC，filler 200 字节，每种树运行 2 次，整理和不整理的吞吐量之比 (2 次的范围):
+ *
+ *                      keys       整理之后 / 整理之前    full GC 之后: 整理 / 不整理
+ * RedBlackTree         100000     0.73 - 0.92            1.00 - 1.04
+ * RedBlackTree         1000000    1.27 - 1.55            1.22 - 2.08
+ * RedBlackTree         2000000    1.27 - 1.32            1.23 - 1.38
+ * StringRedBlackTree   100000     0.82 - 0.89            1.18 - 1.27
+ * StringRedBlackTree   1000000    0.84 - 1.02            1.04 - 1.23
+ * StringRedBlackTree   2000000    0.94 - 1.05            1.11 - 1.13
+ * </pre>
+ *
+ * RedBlackTree 在 100 万个 key 以上整理之后立即快 1.3 到 1.5 倍，GC 之后仍然快 1.2 倍以上。StringRedBlackTree
+ * 整理之后立即测量没有收益，两者都做过 full GC 之后快 1.0 到 1.3 倍。10 万个 key 时整理之后立即测量慢 8% 到 27%，
+ * 两种树的 2 次运行都是如此，可能的原因是整理之前每个节点和它的 key 是连续分配的，经常在同一个缓存行中，整理之后节点和 key
+ * 分开，整个工作集接近缓存大小时需要的缓存行反而更多；full GC 之后和不整理持平。这个解释没有用硬件计数器验证。
+ * 同一配置多次运行之间吞吐量的差别最大在 30% 左右 (例如 RedBlackTree 2000000 整理之前 0.44 和 0.62)，
+ * 结论需要在目标机器上多次运行确认。
+ *
+ * 同样条件下 van Emde Boas 布局和深度优先先序布局的结果和广度优先相差在误差之内，收益主要来自节点集中在一起，
+ * 而不是具体的顺序，所以整理使用和 {@link EytzingerIndex} 相同的广度优先顺序。
+ *
+ * 整理只移动节点，不移动 key 对象。{@link RedBlackTree} 每一层都要读取 key 对象，这部分缓存未命中不会减少；
+ * {@link StringRedBlackTree} 大多数层只比较节点内的前缀，原本预期更能体现节点布局的影响，但上面的结果并不支持这一点，
+ * 它的节点更大 (多一个 long 前缀)，每个缓存行能放下的节点更少。
+ * 两种树共用同一段查找代码，JIT 的类型信息会互相影响，对比时最好用参数指定一种树，每种树单独运行。
+ */
+public class CompactionBenchmark {
+
+    private static final int[] SIZES = {100_000, 1_000_000, 2_000_000};
+    private static final int LOOKUPS = 5_000_000;
+    private static final int ROUNDS = 5;
+    private static final int FILLER_BYTES = 200;
+
+    public static void main(String[] args) {
+        int filler = args.length > 1 ? Integer.parseInt(args[1]) : FILLER_BYTES;
+        System.out.printf("filler: %d bytes per key%n", filler);
+        System.out.printf("%-20s %10s %12s %12s %12s %12s%n", "tree", "keys", "scattered", "+ full GC", "compacted", "+ full GC");
+        for (int size : SIZES) {
+            if (args.length == 0 || args[0].equals("RedBlackTree"))
+                run("RedBlackTree", size, filler, new RedBlackTree<>(), Integer[]::new, Random::nextInt);
+            if (args.length == 0 || args[0].equals("StringRedBlackTree"))
+                run("StringRedBlackTree", size, filler, new StringRedBlackTree(), String[]::new, CompactionBenchmark::randomString);
+            System.out.println();
+        }
+    }
+
+    private static <K extends Comparable<? super K>> void run(String name, int size, int filler, RedBlackTree<K> tree,
+                                                            IntFunction<K[]> newArray, KeyGenerator<K> generator) {
+        Random random = new Random(size);
+        K[] keys = newArray.apply(size);
+        List<byte[]> others = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            keys[i] = generator.next(random);
+            tree.insert(keys[i]);
+            others.add(new byte[filler]);
+        }
+        for (int i = 0; i < 2 * size; i++) {
+            int j = random.nextInt(size);
+            tree.remove(keys[j]);
+            keys[j] = generator.next(random);
+            tree.insert(keys[j]);
+            others.set(j, new byte[filler]);
+        }
+
+        // 一半存在一半不存在
+        K[] lookups = newArray.apply(LOOKUPS);
+        for (int i = 0; i < LOOKUPS; i++)
+            lookups[i] = random.nextBoolean() ? keys[random.nextInt(size)] : generator.next(random);
+
+        double scattered = lookups(tree, lookups);
+        // 不整理只做 full GC 的对照，GC 本身移动节点带来的变化不能算作整理的收益
+        System.gc();
+        double scatteredGc = lookups(tree, lookups);
+        tree.compact();
+        double compacted = lookups(tree, lookups);
+        System.gc();
+        double compactedGc = lookups(tree, lookups);
+        System.out.printf("%-20s %10d %12.2f %12.2f %12.2f %12.2f%n", name, size, scattered, scatteredGc, compacted, compactedGc);
+        if (others.size() != size)
+            throw new AssertionError();
+    }
+
+    private static <K extends Comparable<? super K>> double lookups(RedBlackTree<K> tree, K[] lookups) {
+        long best = Long.MAX_VALUE;
+        int found = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            found = 0;
+            for (K key : lookups) {
+                if (tree.search(key) != null)
+                    found++;
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        if (found == 0)
+            throw new AssertionError("no key found");
+        return lookups.length * 1000.0 / best;
+    }
+
+    private static String randomString(Random random) {
+        char[] chars = new char[8];
+        for (int i = 0; i < chars.length; i++)
+            chars[i] = (char) ('a' + random.nextInt(26));
+        return new String(chars);
+    }
+
+    private interface KeyGenerator<K> {
+
+        K next(Random random);
+    }
+
+}
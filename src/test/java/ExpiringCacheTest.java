@@ -0,0 +1,102 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * 随机执行 put、touch、remove、get 和 expireUpTo，和 HashMap 保存的模型比较。模型记录每个 key 的 value、deadline
+ * 和重新调度时的序号，expireUpTo 删除的条目以及它们的顺序 (deadline 相同时按调度顺序) 都要和模型一致。
+ */
+public class ExpiringCacheTest {
+
+    public static void main(String[] args) {
+        Random random = new Random(2019);
+        for (int round = 0; round < 20; round++) {
+            ExpiringCache<Integer, Integer> cache = new ExpiringCache<>();
+            Map<Integer, long[]> model = new HashMap<>(); // key -> {value, deadline, seq}
+            long seq = 0;
+            long now = 0;
+
+            for (int i = 0; i < 20000; i++) {
+                int key = random.nextInt(round % 2 == 0 ? 500 : 50);
+                long deadline = now + random.nextInt(100); // 范围很小，有很多相同的 deadline
+                long[] e = model.get(key);
+                switch (random.nextInt(6)) {
+                    case 0:
+                    case 1: {
+                        int value = random.nextInt();
+                        Integer old = cache.put(key, value, deadline);
+                        RedBlackTreeTest.check(e == null ? old == null : old != null && old == e[0], "put " + key);
+                        if (e == null)
+                            model.put(key, new long[]{value, deadline, seq++});
+                        else {
+                            e[0] = value;
+                            if (e[1] != deadline) {
+                                e[1] = deadline;
+                                e[2] = seq++;
+                            }
+                        }
+                        break;
+                    }
+                    case 2:
+                        RedBlackTreeTest.check(cache.touch(key, deadline) == (e != null), "touch " + key);
+                        if (e != null && e[1] != deadline) {
+                            e[1] = deadline;
+                            e[2] = seq++;
+                        }
+                        break;
+                    case 3: {
+                        Integer removed = cache.remove(key);
+                        RedBlackTreeTest.check(e == null ? removed == null : removed != null && removed == e[0], "remove " + key);
+                        model.remove(key);
+                        break;
+                    }
+                    case 4: {
+                        Integer value = cache.get(key);
+                        RedBlackTreeTest.check(e == null ? value == null : value != null && value == e[0], "get " + key);
+                        break;
+                    }
+                    default:
+                        now += random.nextInt(30);
+                        checkExpire(cache, model, now);
+                }
+
+                RedBlackTreeTest.check(cache.size() == model.size(), "size " + cache.size() + " != " + model.size());
+                long next = Long.MAX_VALUE;
+                for (long[] v : model.values())
+                    next = Math.min(next, v[1]);
+                RedBlackTreeTest.check(cache.nextDeadline() == next, "next deadline " + cache.nextDeadline() + " != " + next);
+            }
+
+            checkExpire(cache, model, Long.MAX_VALUE);
+            RedBlackTreeTest.check(cache.size() == 0 && cache.nextDeadline() == Long.MAX_VALUE, "cache is not empty");
+        }
+        System.out.println("ExpiringCache random check finished.");
+    }
+
+    private static void checkExpire(ExpiringCache<Integer, Integer> cache, Map<Integer, long[]> model, long now) {
+        List<Map.Entry<Integer, long[]>> expired = new ArrayList<>();
+        for (Iterator<Map.Entry<Integer, long[]>> it = model.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Integer, long[]> e = it.next();
+            if (e.getValue()[1] <= now) {
+                expired.add(e);
+                it.remove();
+            }
+        }
+        expired.sort((a, b) -> {
+            int cmp = Long.compare(a.getValue()[1], b.getValue()[1]);
+            return cmp != 0 ? cmp : Long.compare(a.getValue()[2], b.getValue()[2]);
+        });
+
+        Map<Integer, Integer> result = cache.expireUpTo(now);
+        RedBlackTreeTest.check(result.size() == expired.size(), "expired " + result.size() + " != " + expired.size());
+        Iterator<Map.Entry<Integer, Integer>> it = result.entrySet().iterator();
+        for (Map.Entry<Integer, long[]> e : expired) {
+            Map.Entry<Integer, Integer> r = it.next();
+            RedBlackTreeTest.check(r.getKey().equals(e.getKey()) && r.getValue() == e.getValue()[0], "expire order at " + e.getKey());
+        }
+    }
+
+}
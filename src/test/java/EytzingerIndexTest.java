@@ -0,0 +1,40 @@
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.stream.IntStream;
+
+public class EytzingerIndexTest {
+
+    public static void main(String[] args) throws Exception {
+        Random random = new Random(2019);
+        for (int n : new int[]{0, 1, 2, 7, 15, 20, 1000}) {
+            RedBlackTree<Integer> tree = new RedBlackTree<>();
+            TreeSet<Integer> expected = new TreeSet<>();
+            IntStream.range(0, n).map(i -> random.nextInt(n * 4 + 1) - n).forEach(i -> {
+                tree.insert(i);
+                expected.add(i);
+            });
+
+            Path path = Files.createTempFile("eytzinger", ".idx");
+            try {
+                EytzingerIndex.export(tree, Integer::longValue, path);
+                EytzingerIndex index = EytzingerIndex.open(path);
+                RedBlackTreeTest.check(index.size() == expected.size(), "size");
+                for (int i = -n * 2 - 2; i <= n * 4 + 2; i++) {
+                    RedBlackTreeTest.check(index.contains(i) == expected.contains(i), "contains " + i);
+                    RedBlackTreeTest.check(same(index.floor(i), expected.floor(i)), "floor " + i);
+                    RedBlackTreeTest.check(same(index.ceiling(i), expected.ceiling(i)), "ceiling " + i);
+                }
+                System.out.printf("eytzinger index with %d keys checked.%n", index.size());
+            } finally {
+                Files.delete(path);
+            }
+        }
+    }
+
+    private static boolean same(Long actual, Integer expected) {
+        return expected == null ? actual == null : actual != null && actual == expected.longValue();
+    }
+
+}
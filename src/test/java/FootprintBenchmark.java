@@ -0,0 +1,116 @@
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntFunction;
+
+/**
+ * 测量各种树的实现每个 key 实际占用的堆内存，并和 {@link RedBlackTree#footprintEstimate()} 的估算值对比。
+ *
+ * <pre>
+ * # 压缩指针 (堆小于 32G 时默认开启)
+ * java -Xmx2g -XX:+UseParallelGC -cp target/classes:target/test-classes FootprintBenchmark
+ *
+ * # 非压缩指针
+ * java -Xmx2g -XX:+UseParallelGC -XX:-UseCompressedOops -cp target/classes:target/test-classes FootprintBenchmark
+ * </pre>
+ *
+ * 实测值是建树前后 GC 之后已用堆内存的差值，包括 key 对象本身，估算值不包括 key。
+ * SerialGC 的 System.gc() 之后已用堆内存统计不准确，单核机器上 JVM 默认使用 SerialGC，所以要指定 GC。
+ */
+public class FootprintBenchmark {
+
+    private static final int[] SIZES = {1_000, 10_000, 100_000, 1_000_000};
+
+    public static void main(String[] args) {
+        System.out.printf("compressed oops: %s, compressed class pointers: %s%n%n",
+                ObjectLayout.COMPRESSED_OOPS, ObjectLayout.COMPRESSED_CLASS_POINTERS);
+
+        System.out.printf("shallow size of RedBlackTree.Node: %d bytes%n", ObjectLayout.shallowSize(RedBlackTree.Node.class));
+        System.out.printf("shallow size of StringRedBlackTree.StringNode: %d bytes%n", ObjectLayout.shallowSize(StringRedBlackTree.StringNode.class));
+        System.out.printf("shallow size of IntervalTree.IntervalNode: %d bytes%n", ObjectLayout.shallowSize(IntervalTree.IntervalNode.class));
+        System.out.printf("shallow size of AggregateTree.AggregateNode: %d bytes%n", ObjectLayout.shallowSize(AggregateTree.AggregateNode.class));
+        System.out.printf("shallow size of TreeNode: %d bytes%n", ObjectLayout.shallowSize(TreeNode.class));
+        System.out.printf("shallow size of RedBlackTreePrint.RedBlackNodeInfo: %d bytes%n%n", ObjectLayout.shallowSize(RedBlackTreePrint.RedBlackNodeInfo.class));
+
+        System.out.printf("%-36s %10s %14s %14s%n", "tree", "keys", "measured B/key", "estimate B/key");
+        for (int size : SIZES) {
+            Random random = new Random(size);
+            int[] keys = random.ints(size).toArray();
+            String[] strings = new String[size];
+            for (int i = 0; i < size; i++)
+                strings[i] = "key-" + Integer.toHexString(keys[i]);
+
+            measure("RedBlackTree<Integer>", size, i -> {
+                RedBlackTree<Integer> tree = new RedBlackTree<>();
+                for (int k : keys) tree.insert(k);
+                return tree;
+            });
+            measure("HashIndexedRedBlackTree<Integer>", size, i -> {
+                HashIndexedRedBlackTree<Integer> tree = new HashIndexedRedBlackTree<>();
+                for (int k : keys) tree.insert(k);
+                return tree;
+            });
+            measure("RedBlackTree<Long>", size, i -> {
+                RedBlackTree<Long> tree = new RedBlackTree<>(Long::compare);
+                for (int k : keys) tree.insert((long) k);
+                return tree;
+            });
+            measure("RedBlackTree<String>", size, i -> {
+                RedBlackTree<String> tree = new RedBlackTree<>();
+                for (String k : strings) tree.insert(new String(k));
+                return tree;
+            });
+            measure("StringRedBlackTree", size, i -> {
+                StringRedBlackTree tree = new StringRedBlackTree();
+                for (String k : strings) tree.insert(new String(k));
+                return tree;
+            });
+            measure("IntervalTree<Integer>", size, i -> {
+                IntervalTree<Integer> tree = new IntervalTree<>();
+                for (int k : keys) tree.insert(k, k + 100);
+                return tree;
+            });
+            measure("AggregateTree<Integer, Long>", size, i -> {
+                AggregateTree<Integer, Long> tree = new AggregateTree<>(Integer::longValue, 0L, Long::sum);
+                for (int k : keys) tree.insert(k);
+                return tree;
+            });
+            measure("TreeNode", size, i -> {
+                int[] sorted = keys.clone();
+                java.util.Arrays.sort(sorted);
+                return new BinarySearchCodec().sortedArrayToBST(sorted);
+            });
+            System.out.println();
+        }
+    }
+
+    private static void measure(String name, int size, IntFunction<Object> builder) {
+        List<Object> holder = new ArrayList<>(1);
+        long before = usedMemory();
+        holder.add(builder.apply(size));
+        long after = usedMemory();
+
+        Object tree = holder.get(0);
+        String estimate = tree instanceof RedBlackTree
+                ? String.format("%14.1f", (double) ((RedBlackTree<?>) tree).footprintEstimate() / size)
+                : String.format("%14.1f", (double) ObjectLayout.shallowSize(TreeNode.class));
+        System.out.printf("%-36s %10d %14.1f %s%n", name, size, (double) (after - before) / size, estimate);
+        holder.clear();
+    }
+
+    private static long usedMemory() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long used = Long.MAX_VALUE;
+        // 多次 GC 直到已用内存不再下降
+        for (int i = 0; i < 8; i++) {
+            System.gc();
+            long current = memory.getHeapMemoryUsage().getUsed();
+            if (current >= used) break;
+            used = current;
+        }
+        return used;
+    }
+
+}
@@ -0,0 +1,105 @@
+import java.util.Random;
+import java.util.TreeSet;
+
+/**
+ * 随机插入 (包括带提示节点的插入) 和删除，和 TreeSet 比较哈希查找的结果和 size，
+ * 并检查比较器和 equals 不一致时同一个节点不会被索引两次。
+ */
+public class HashIndexedRedBlackTreeTest {
+
+    public static void main(String[] args) {
+        Random random = new Random(2019);
+        for (int round = 0; round < 10; round++) {
+            HashIndexedRedBlackTree<Integer> tree = new HashIndexedRedBlackTree<>();
+            TreeSet<Integer> expected = new TreeSet<>();
+            RedBlackTree.Node<Integer> hint = null;
+            for (int i = 0; i < 20000; i++) {
+                int key = random.nextInt(round % 2 == 0 ? 5000 : 200);
+                switch (random.nextInt(4)) {
+                    case 0:
+                        RedBlackTreeTest.check(tree.insert(key).key == key, "insert " + key);
+                        expected.add(key);
+                        break;
+                    case 1:
+                        hint = tree.insert(key, hint);
+                        RedBlackTreeTest.check(hint.key == key, "hinted insert " + key);
+                        expected.add(key);
+                        break;
+                    case 2:
+                        if (hint != null && hint.key == key)
+                            hint = null;
+                        RedBlackTreeTest.check((tree.remove(Integer.valueOf(key)) != null) == expected.remove(key), "remove " + key);
+                        break;
+                    default: {
+                        RedBlackTree.Node<Integer> p = tree.search(key);
+                        RedBlackTreeTest.check(p == null ? !expected.contains(key) : p.key == key, "search " + key);
+                    }
+                }
+                RedBlackTreeTest.check(tree.size() == expected.size(), "size " + tree.size() + " != " + expected.size());
+            }
+            for (Integer key : expected)
+                RedBlackTreeTest.check(tree.search(key) != null, "lost " + key);
+            // 装载因子不超过 1/2，估算值至少包括节点和 2 倍 size 的哈希表数组
+            long nodes = expected.size() * ObjectLayout.shallowSize(RedBlackTree.Node.class);
+            RedBlackTreeTest.check(tree.footprintEstimate() >= nodes + ObjectLayout.referenceArraySize(2 * expected.size()), "footprint without table");
+        }
+
+        // 比较器和 equals 不一致，"a" 在哈希表中找不到，但红黑树中已经有 "A"
+        HashIndexedRedBlackTree<String> tree = new HashIndexedRedBlackTree<>(String.CASE_INSENSITIVE_ORDER);
+        RedBlackTree.Node<String> a = tree.insert("A");
+        RedBlackTreeTest.check(tree.insert("a") == a && tree.insert("a", a) == a && tree.insert("a", null) == a, "insert a");
+        RedBlackTreeTest.check(tree.size() == 1, "size " + tree.size());
+        RedBlackTreeTest.check(tree.search("A") == a, "search A");
+        tree.remove(a);
+        RedBlackTreeTest.check(tree.size() == 0 && tree.search("A") == null && tree.root == null, "remove A");
+        checkEqualKeys();
+        System.out.println("HashIndexedRedBlackTree random check finished.");
+    }
+
+    /**
+     * equals 相等但比较结果不同的 2 个 key 通过并集进入同一棵树，删除其中一个节点时只能删除它自己的索引项
+     */
+    private static void checkEqualKeys() {
+        HashIndexedRedBlackTree<Key> a = new HashIndexedRedBlackTree<>();
+        HashIndexedRedBlackTree<Key> b = new HashIndexedRedBlackTree<>();
+        RedBlackTree.Node<Key> first = a.insert(new Key(1, 1));
+        RedBlackTree.Node<Key> second = b.insert(new Key(1, 2));
+        RedBlackTreeSets.union(a, b);
+        RedBlackTreeTest.check(a.size() == 2, "size after union " + a.size());
+
+        a.remove(second);
+        RedBlackTreeTest.check(a.size() == 1 && a.search(new Key(1, 0)) == first, "remove removed the index entry of another node");
+        a.remove(first);
+        RedBlackTreeTest.check(a.size() == 0 && a.search(new Key(1, 0)) == null && a.root == null, "remove the last node");
+    }
+
+    /**
+     * equals 和 hashCode 只看 id，排序只看 order
+     */
+    private static final class Key implements Comparable<Key> {
+
+        final int id;
+        final int order;
+
+        Key(int id, int order) {
+            this.id = id;
+            this.order = order;
+        }
+
+        @Override
+        public int compareTo(Key o) {
+            return Integer.compare(order, o.order);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && ((Key) o).id == id;
+        }
+
+        @Override
+        public int hashCode() {
+            return id;
+        }
+    }
+
+}
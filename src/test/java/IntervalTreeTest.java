@@ -0,0 +1,58 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+public class IntervalTreeTest {
+
+    public static void main(String[] args) {
+        Random random = new Random(2019);
+        IntervalTree<Integer> tree = new IntervalTree<>();
+        TreeSet<IntervalTree.Interval<Integer>> expected = new TreeSet<>();
+
+        for (int round = 0; round < 20000; round++) {
+            int low = random.nextInt(1000);
+            IntervalTree.Interval<Integer> interval = new IntervalTree.Interval<>(low, low + random.nextInt(50));
+            if (random.nextInt(3) == 0) {
+                tree.remove(interval);
+                expected.remove(interval);
+            } else {
+                tree.insert(interval);
+                expected.add(interval);
+            }
+
+            if (round % 100 == 0) {
+                checkMax(tree.root);
+                int a = random.nextInt(1100) - 50;
+                int b = a + random.nextInt(100);
+                RedBlackTreeTest.check(tree.overlapping(a, b).equals(brute(expected, a, b)), "overlapping " + a + " " + b);
+                RedBlackTreeTest.check(tree.stabbing(a).equals(brute(expected, a, a)), "stabbing " + a);
+            }
+        }
+
+        IntervalTree<Integer> small = new IntervalTree<>();
+        small.insert(15, 20);
+        small.insert(10, 30);
+        small.insert(17, 19);
+        small.insert(5, 20);
+        small.insert(12, 15);
+        small.insert(30, 40);
+        new RedBlackTreePrint().print(small, "overlapping [14, 16]:", small.overlapping(14, 16).toString());
+    }
+
+    private static List<IntervalTree.Interval<Integer>> brute(TreeSet<IntervalTree.Interval<Integer>> intervals, int a, int b) {
+        List<IntervalTree.Interval<Integer>> result = new ArrayList<>();
+        for (IntervalTree.Interval<Integer> interval : intervals) {
+            if (interval.overlaps(a, b)) result.add(interval);
+        }
+        return result;
+    }
+
+    private static int checkMax(RedBlackTree.Node<IntervalTree.Interval<Integer>> node) {
+        if (node == null) return Integer.MIN_VALUE;
+        int max = Math.max(node.key.getHigh(), Math.max(checkMax(node.left), checkMax(node.right)));
+        RedBlackTreeTest.check(((IntervalTree.IntervalNode<Integer>) node).max == max, "max of " + node.key);
+        return max;
+    }
+
+}
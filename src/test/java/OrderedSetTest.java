@@ -0,0 +1,66 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+/**
+ * 用同一组随机操作检查 {@link OrderedSet} 的三种实现，并检查 {@link AVLTree} 和 {@link WAVLTree} 的平衡条件。
+ */
+public class OrderedSetTest {
+
+    public static void main(String[] args) {
+        RedBlackTree<Integer> redBlack = new RedBlackTree<>();
+        AVLTree<Integer> avl = new AVLTree<>();
+        WAVLTree<Integer> wavl = new WAVLTree<>(Integer::compare);
+        check(redBlack, () -> RedBlackTreeTest.checkInvariants(redBlack));
+        check(avl, () -> checkHeight(avl.root));
+        check(wavl, () -> checkRank(wavl.root));
+        System.out.println("OrderedSet check of RedBlackTree, AVLTree and WAVLTree finished.");
+    }
+
+    private static <N> void check(OrderedSet<Integer, N> tree, Runnable checkBalance) {
+        Random random = new Random(2019);
+        TreeSet<Integer> expected = new TreeSet<>();
+        for (int round = 0; round < 20000; round++) {
+            int key = random.nextInt(round < 10000 ? 3000 : 500); // 后半段 key 更少，删除更多
+            if (random.nextInt(3) == 0) {
+                N node = tree.search(key);
+                if (node != null)
+                    tree.remove(node);
+                RedBlackTreeTest.check(expected.remove(key) == (node != null), "remove " + key);
+            } else {
+                RedBlackTreeTest.check(tree.keyOf(tree.insert(key)) == key, "insert " + key);
+                expected.add(key);
+            }
+
+            if (round % 100 == 0) {
+                checkBalance.run();
+                List<Integer> keys = new ArrayList<>();
+                for (N p = tree.getFirstNode(); p != null; p = tree.next(p))
+                    keys.add(tree.keyOf(p));
+                RedBlackTreeTest.check(keys.equals(new ArrayList<>(expected)), "keys in order");
+                RedBlackTreeTest.check(expected.isEmpty() || tree.keyOf(tree.getLastNode()).equals(expected.last()), "last key");
+            }
+        }
+    }
+
+    private static int checkHeight(AVLTree.Node<Integer> node) {
+        if (node == null) return 0;
+        int left = checkHeight(node.left);
+        int right = checkHeight(node.right);
+        RedBlackTreeTest.check(Math.abs(left - right) <= 1, "balance of " + node.key);
+        RedBlackTreeTest.check(node.height == Math.max(left, right) + 1, "height of " + node.key);
+        return node.height;
+    }
+
+    private static void checkRank(WAVLTree.Node<Integer> node) {
+        if (node == null) return;
+        int left = node.rank - (node.left == null ? -1 : node.left.rank);
+        int right = node.rank - (node.right == null ? -1 : node.right.rank);
+        RedBlackTreeTest.check(left >= 1 && left <= 2 && right >= 1 && right <= 2, "rank differences of " + node.key);
+        RedBlackTreeTest.check(node.left != null || node.right != null || node.rank == 0, "rank of leaf " + node.key);
+        checkRank(node.left);
+        checkRank(node.right);
+    }
+
+}
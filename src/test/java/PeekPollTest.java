@@ -0,0 +1,96 @@
+import java.util.Random;
+import java.util.TreeSet;
+
+/**
+ * 随机插入、删除和从两端 poll，和 TreeSet 比较 peekFirst/peekLast/pollFirst/pollLast 的结果，
+ * 每次操作之后检查缓存的首尾节点以及红黑树的性质，包括删除首尾节点和删除有 2 个子节点的首尾相邻节点的情况。
+ */
+public class PeekPollTest {
+
+    public static void main(String[] args) {
+        Random random = new Random(2019);
+        for (int round = 0; round < 30; round++) {
+            RedBlackTree<Integer> tree;
+            if (round % 3 == 0)
+                tree = new RedBlackTree<>();
+            else if (round % 3 == 1)
+                tree = new RedBlackTree<>((a, b) -> Integer.compare(b, a)); // 逆序，first 是最大的整数
+            else
+                tree = new HashIndexedRedBlackTree<>();
+            TreeSet<Integer> expected = new TreeSet<>(tree.comparator);
+
+            RedBlackTreeTest.check(tree.peekFirst() == null && tree.peekLast() == null, "peek on empty tree");
+            RedBlackTreeTest.check(tree.pollFirst() == null && tree.pollLast() == null, "poll on empty tree");
+
+            for (int i = 0; i < 5000; i++) {
+                int key = random.nextInt(round % 2 == 0 ? 1000 : 100);
+                switch (random.nextInt(6)) {
+                    case 0:
+                    case 1:
+                        tree.insert(key);
+                        expected.add(key);
+                        break;
+                    case 2: {
+                        RedBlackTree.Node<Integer> removed = tree.remove(Integer.valueOf(key));
+                        RedBlackTreeTest.check((removed != null) == expected.remove(key), "remove " + key);
+                        break;
+                    }
+                    case 3: {
+                        // 删除首尾节点的相邻节点，它们可能有 2 个子节点，需要和后继节点交换位置
+                        RedBlackTree.Node<Integer> p = random.nextBoolean()
+                                ? tree.next(tree.getFirstNode())
+                                : tree.previous(tree.getLastNode());
+                        if (p != null) {
+                            RedBlackTreeTest.check(expected.remove(p.key), "remove neighbour " + p.key);
+                            tree.remove(p);
+                        }
+                        break;
+                    }
+                    case 4: {
+                        Integer polled = tree.pollFirst();
+                        RedBlackTreeTest.check(equal(polled, expected.pollFirst()), "pollFirst " + polled);
+                        checkUnindexed(tree, polled);
+                        break;
+                    }
+                    default: {
+                        Integer polled = tree.pollLast();
+                        RedBlackTreeTest.check(equal(polled, expected.pollLast()), "pollLast " + polled);
+                        checkUnindexed(tree, polled);
+                    }
+                }
+
+                checkEnds(tree, expected);
+                RedBlackTreeTest.checkInvariants(tree);
+            }
+
+            while (!expected.isEmpty()) {
+                Integer polled = random.nextBoolean() ? tree.pollFirst() : tree.pollLast();
+                RedBlackTreeTest.check(polled != null && expected.remove(polled), "drain " + polled);
+                checkEnds(tree, expected);
+            }
+            RedBlackTreeTest.check(tree.root == null, "tree is not empty");
+        }
+        System.out.println("peek/poll check finished.");
+    }
+
+    private static void checkEnds(RedBlackTree<Integer> tree, TreeSet<Integer> expected) {
+        Integer first = expected.isEmpty() ? null : expected.first();
+        Integer last = expected.isEmpty() ? null : expected.last();
+        RedBlackTreeTest.check(equal(tree.peekFirst(), first), "peekFirst " + tree.peekFirst() + " != " + first);
+        RedBlackTreeTest.check(equal(tree.peekLast(), last), "peekLast " + tree.peekLast() + " != " + last);
+        RedBlackTreeTest.check(tree.getFirstNode() == null ? first == null : tree.getFirstNode().key.equals(first), "first node");
+        RedBlackTreeTest.check(tree.getLastNode() == null ? last == null : tree.getLastNode().key.equals(last), "last node");
+        if (tree instanceof HashIndexedRedBlackTree)
+            RedBlackTreeTest.check(((HashIndexedRedBlackTree<Integer>) tree).size() == expected.size(), "size");
+    }
+
+    private static void checkUnindexed(RedBlackTree<Integer> tree, Integer polled) {
+        if (polled != null)
+            RedBlackTreeTest.check(tree.search(polled) == null, "polled key " + polled + " is still found");
+    }
+
+    private static boolean equal(Integer a, Integer b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+}
@@ -0,0 +1,62 @@
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.function.IntPredicate;
+
+/**
+ * 对比红黑树、带哈希索引的红黑树和 {@link TreeMap} 的单点查找吞吐量。
+ *
+ * <pre>
+ * java -Xmx2g -cp target/classes:target/test-classes PointLookupBenchmark
+ * </pre>
+ *
+ * 查找的 key 一半存在一半不存在，每种实现先预热，再取多轮中最快的一轮。
+ */
+public class PointLookupBenchmark {
+
+    private static final int[] SIZES = {1_000, 100_000, 1_000_000};
+    private static final int LOOKUPS = 5_000_000;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) {
+        System.out.printf("%-28s %10s %14s%n", "tree", "keys", "lookups/us");
+        for (int size : SIZES) {
+            Random random = new Random(size);
+            Integer[] keys = new Integer[size];
+            for (int i = 0; i < size; i++)
+                keys[i] = random.nextInt() & ~1; // 偶数存在
+            Integer[] lookups = new Integer[LOOKUPS];
+            for (int i = 0; i < LOOKUPS; i++)
+                lookups[i] = keys[random.nextInt(size)] | random.nextInt(2);
+
+            RedBlackTree<Integer> tree = new RedBlackTree<>();
+            HashIndexedRedBlackTree<Integer> indexed = new HashIndexedRedBlackTree<>();
+            TreeMap<Integer, Boolean> treeMap = new TreeMap<>();
+            for (Integer k : keys) {
+                tree.insert(k);
+                indexed.insert(k);
+                treeMap.put(k, Boolean.TRUE);
+            }
+
+            run("RedBlackTree", size, lookups, i -> tree.search(lookups[i]) != null);
+            run("HashIndexedRedBlackTree", size, lookups, i -> indexed.search(lookups[i]) != null);
+            run("TreeMap", size, lookups, i -> treeMap.containsKey(lookups[i]));
+            System.out.println();
+        }
+    }
+
+    private static void run(String name, int size, Integer[] lookups, IntPredicate lookup) {
+        long best = Long.MAX_VALUE;
+        int found = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            found = 0;
+            for (int i = 0; i < lookups.length; i++) {
+                if (lookup.test(i))
+                    found++;
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.printf("%-28s %10d %14.1f   (found %d)%n", name, size, lookups.length * 1000.0 / best, found);
+    }
+
+}
@@ -0,0 +1,119 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+
+public class RedBlackTreeSetsTest {
+
+    public static void main(String[] args) {
+        Random random = new Random(2019);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        int[][] sizes = {{0, 0}, {0, 10}, {10, 0}, {1, 1}, {5, 100}, {100, 5}, {300, 300}, {2000, 50000}, {50000, 50000}};
+
+        for (int[] size : sizes) {
+            for (int op = 0; op < 3; op++) {
+                for (ForkJoinPool p : new ForkJoinPool[]{null, pool}) {
+                    TreeSet<Integer> x = new TreeSet<>();
+                    TreeSet<Integer> y = new TreeSet<>();
+                    RedBlackTree<Integer> a = random(random, size[0], x);
+                    RedBlackTree<Integer> b = random(random, size[1], y);
+                    List<RedBlackTree.Node<Integer>> handles = nodes(a);
+                    handles.addAll(nodes(b));
+
+                    if (op == 0) {
+                        RedBlackTreeSets.union(a, b, p);
+                        x.addAll(y);
+                    } else if (op == 1) {
+                        RedBlackTreeSets.intersection(a, b, p);
+                        x.retainAll(y);
+                    } else {
+                        RedBlackTreeSets.difference(a, b, p);
+                        x.removeAll(y);
+                    }
+
+                    RedBlackTreeTest.check(b.root == null, "b is not empty");
+                    checkRedBlack(a.root, null, null, null);
+                    RedBlackTree.Node<Integer> node = a.getFirstNode();
+                    for (int key : x) {
+                        RedBlackTreeTest.check(node != null && node.key == key, "missing key " + key);
+                        node = RedBlackTree.successor(node);
+                    }
+                    RedBlackTreeTest.check(node == null, "extra key " + (node == null ? null : node.key));
+                    checkHandles(a, b, handles);
+                }
+            }
+            System.out.printf("set operations of %d and %d keys checked.%n", size[0], size[1]);
+        }
+        pool.shutdown();
+
+        // 和自己求差集，所有节点都被丢弃
+        TreeSet<Integer> keys = new TreeSet<>();
+        RedBlackTree<Integer> self = random(random, 1000, keys);
+        List<RedBlackTree.Node<Integer>> handles = nodes(self);
+        RedBlackTreeSets.difference(self, self);
+        RedBlackTreeTest.check(self.root == null, "difference with itself is not empty");
+        checkHandles(self, self, handles);
+
+        RedBlackTree<Integer> a = new RedBlackTree<>();
+        RedBlackTree<Integer> b = new RedBlackTree<>();
+        for (int i = 1; i <= 7; i++) a.insert(i);
+        for (int i = 5; i <= 12; i++) b.insert(i);
+        RedBlackTreeSets.union(a, b);
+        new RedBlackTreePrint().print(a, "union [1..7] [5..12] finished.");
+    }
+
+    private static List<RedBlackTree.Node<Integer>> nodes(RedBlackTree<Integer> tree) {
+        List<RedBlackTree.Node<Integer>> nodes = new ArrayList<>();
+        for (RedBlackTree.Node<Integer> p = tree.getFirstNode(); p != null; p = tree.next(p))
+            nodes.add(p);
+        return nodes;
+    }
+
+    /**
+     * 结果中的节点仍然是有效的句柄，被丢弃的节点没有任何链接，在两棵树上删除都抛出 IllegalArgumentException
+     */
+    private static void checkHandles(RedBlackTree<Integer> a, RedBlackTree<Integer> b, List<RedBlackTree.Node<Integer>> handles) {
+        for (RedBlackTree.Node<Integer> p : handles) {
+            if (a.search(p.key) == p)
+                continue;
+            RedBlackTreeTest.check(p.left == null && p.right == null && p.parent == null, "discarded node " + p.key + " is still linked");
+            RedBlackTreeTest.check(a.next(p) == null && a.previous(p) == null, "discarded node " + p.key + " has neighbours");
+            for (RedBlackTree<Integer> tree : Arrays.asList(a, b)) {
+                try {
+                    tree.remove(p);
+                    throw new AssertionError("removed discarded node " + p.key);
+                } catch (IllegalArgumentException expected) {
+                    // 被丢弃的句柄已经失效
+                }
+            }
+        }
+    }
+
+    private static RedBlackTree<Integer> random(Random random, int size, TreeSet<Integer> keys) {
+        RedBlackTree<Integer> tree = new RedBlackTree<>();
+        for (int i = 0; i < size; i++) {
+            int key = random.nextInt(size * 3);
+            tree.insert(key);
+            keys.add(key);
+        }
+        return tree;
+    }
+
+    /**
+     * @return black height of {@code node}
+     */
+    private static int checkRedBlack(RedBlackTree.Node<Integer> node, RedBlackTree.Node<Integer> parent, Integer low, Integer high) {
+        if (node == null) return 0;
+        RedBlackTreeTest.check(node.parent == parent, "parent of " + node.key);
+        RedBlackTreeTest.check(parent != null || node.color == RedBlackTree.BLACK, "red root");
+        RedBlackTreeTest.check(node.color == RedBlackTree.BLACK || parent.color == RedBlackTree.BLACK, "red parent of red " + node.key);
+        RedBlackTreeTest.check((low == null || low < node.key) && (high == null || node.key < high), "order of " + node.key);
+        int left = checkRedBlack(node.left, node, low, node.key);
+        int right = checkRedBlack(node.right, node, node.key, high);
+        RedBlackTreeTest.check(left == right, "black height of " + node.key);
+        return left + (node.color == RedBlackTree.BLACK ? 1 : 0);
+    }
+
+}
@@ -0,0 +1,170 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+
+/**
+ * 随机插入和删除，每次删除之后检查红黑树的性质，并检查删除其他 key 之后之前得到的节点句柄仍然指向原来的 key。
+ */
+public class RedBlackTreeTest {
+
+    public static void main(String[] args) {
+        Random random = new Random(2019);
+        for (int round = 0; round < 20; round++) {
+            RedBlackTree<Integer> tree = round % 2 == 0 ? new RedBlackTree<>() : new RedBlackTree<>(Integer::compare);
+            TreeSet<Integer> expected = new TreeSet<>();
+            Map<Integer, RedBlackTree.Node<Integer>> handles = new HashMap<>();
+
+            for (int i = 0; i < 5000; i++) {
+                int key = random.nextInt(i < 2500 ? 2000 : 300); // 后半段 key 更少，删除更多
+                int op = random.nextInt(3);
+                if (op == 0) {
+                    RedBlackTree.Node<Integer> node = tree.insert(key);
+                    check(node.key == key, "insert " + key);
+                    check(!handles.containsKey(key) || handles.get(key) == node, "new node for existing key " + key);
+                    handles.put(key, node);
+                    expected.add(key);
+                    continue;
+                }
+
+                RedBlackTree.Node<Integer> node = handles.remove(key);
+                if (op == 1 && node != null) {
+                    tree.remove(node);
+                    try {
+                        tree.remove(node);
+                        throw new AssertionError("second remove of " + key);
+                    } catch (IllegalArgumentException expectedException) {
+                        // 已经删除的节点不能再删除
+                    }
+                } else {
+                    RedBlackTree.Node<Integer> removed = tree.remove(Integer.valueOf(key));
+                    check(removed == node, "remove " + key + " returned another node");
+                }
+                check(expected.remove(key) == (node != null), "remove " + key);
+
+                checkInvariants(tree);
+                for (Map.Entry<Integer, RedBlackTree.Node<Integer>> e : handles.entrySet())
+                    check(e.getValue().key.equals(e.getKey()), "handle of " + e.getKey() + " moved to " + e.getValue().key);
+                checkKeys(tree, expected);
+            }
+
+            while (!expected.isEmpty()) {
+                tree.remove(handles.remove(expected.pollLast()));
+                checkInvariants(tree);
+            }
+            check(tree.root == null && tree.getFirstNode() == null && tree.getLastNode() == null, "tree is not empty");
+        }
+        System.out.println("RedBlackTree insert/remove check finished.");
+
+        checkCompact(new RedBlackTree<>(), random);
+        checkCompact(new HashIndexedRedBlackTree<>(), random);
+        System.out.println("RedBlackTree compact check finished.");
+    }
+
+    /**
+     * 整理之后结构、颜色和 key 不变，旧句柄失效：删除时抛出 IllegalArgumentException，不会修改新的树
+     */
+    private static void checkCompact(RedBlackTree<Integer> tree, Random random) {
+        TreeSet<Integer> expected = new TreeSet<>();
+        for (int i = 0; i < 20000; i++) {
+            int key = random.nextInt(10000);
+            if (random.nextInt(3) == 0) {
+                tree.remove(Integer.valueOf(key));
+                expected.remove(key);
+            } else {
+                tree.insert(key);
+                expected.add(key);
+            }
+        }
+
+        String shape = shape(tree.root);
+        List<RedBlackTree.Node<Integer>> stale = new ArrayList<>();
+        for (RedBlackTree.Node<Integer> p = tree.getFirstNode(); p != null; p = tree.next(p))
+            stale.add(p);
+        tree.compact();
+        checkInvariants(tree);
+        checkKeys(tree, expected);
+        check(shape(tree.root).equals(shape), "shape changed by compact");
+
+        for (RedBlackTree.Node<Integer> p : stale) {
+            check(tree.search(p.key) != p, "old node of " + p.key + " is still in the tree");
+            check(tree.next(p) == null && tree.previous(p) == null, "old node of " + p.key + " has neighbours");
+            try {
+                tree.remove(p);
+                throw new AssertionError("removed old node of " + p.key);
+            } catch (IllegalArgumentException expectedException) {
+                // 整理之前的句柄已经失效
+            }
+        }
+        checkKeys(tree, expected);
+
+        for (Integer key : new ArrayList<>(expected)) {
+            if (random.nextBoolean()) {
+                tree.remove(tree.search(key));
+                expected.remove(key);
+            }
+        }
+        checkInvariants(tree);
+        checkKeys(tree, expected);
+    }
+
+    /**
+     * 按先序输出每个节点的 key 和颜色，空子树输出 "."
+     */
+    private static String shape(RedBlackTree.Node<Integer> p) {
+        if (p == null)
+            return ".";
+        return "(" + p.key + (p.color == RedBlackTree.BLACK ? "b " : "r ") + shape(p.left) + " " + shape(p.right) + ")";
+    }
+
+    /**
+     * 检查父节点指针、根节点为黑色、没有连续的红色节点、所有路径的黑色节点数相同、key 有序以及缓存的首尾节点
+     */
+    static <K extends Comparable<? super K>> void checkInvariants(RedBlackTree<K> tree) {
+        check(tree.root == null || tree.root.color == RedBlackTree.BLACK, "red root");
+        checkNode(tree, tree.root, null);
+
+        RedBlackTree.Node<K> first = tree.root;
+        RedBlackTree.Node<K> last = tree.root;
+        while (first != null && first.left != null)
+            first = first.left;
+        while (last != null && last.right != null)
+            last = last.right;
+        check(tree.getFirstNode() == first, "first node");
+        check(tree.getLastNode() == last, "last node");
+        for (RedBlackTree.Node<K> p = first; p != null && tree.next(p) != null; p = tree.next(p))
+            check(tree.compare(p.key, tree.next(p).key) < 0, "order of " + p.key);
+    }
+
+    /**
+     * @return black height of {@code node}
+     */
+    private static <K extends Comparable<? super K>> int checkNode(RedBlackTree<K> tree, RedBlackTree.Node<K> node,
+                                                                   RedBlackTree.Node<K> parent) {
+        if (node == null) return 0;
+        check(node.parent == parent, "parent of " + node.key);
+        check(node.color == RedBlackTree.BLACK || parent.color == RedBlackTree.BLACK, "red parent of red " + node.key);
+        int left = checkNode(tree, node.left, node);
+        int right = checkNode(tree, node.right, node);
+        check(left == right, "black height of " + node.key);
+        return left + (node.color == RedBlackTree.BLACK ? 1 : 0);
+    }
+
+    private static void checkKeys(RedBlackTree<Integer> tree, TreeSet<Integer> expected) {
+        List<Integer> keys = new ArrayList<>();
+        for (RedBlackTree.Node<Integer> p = tree.getFirstNode(); p != null; p = tree.next(p))
+            keys.add(p.key);
+        check(keys.equals(new ArrayList<>(expected)), "keys");
+        List<Integer> reversed = new ArrayList<>();
+        for (RedBlackTree.Node<Integer> p = tree.getLastNode(); p != null; p = tree.previous(p))
+            reversed.add(0, p.key);
+        check(reversed.equals(keys), "keys in reverse order");
+    }
+
+    static void check(boolean condition, String message) {
+        if (!condition) throw new AssertionError(message);
+    }
+
+}
@@ -0,0 +1,153 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 先检查 2 个分片、默认 skew 的集合在 key 全部落在一个分片时会自动重新平衡，之后多个线程同时插入、删除和范围查询，
+ * 另一个线程不断调用 {@link ShardedRedBlackTree#rebalance()}。每个线程只修改自己的 key (key % THREADS == 线程号)，
+ * 范围查询结果中属于自己的 key 必须和各自的 {@link TreeSet} 完全一致，整个结果必须严格递增。
+ */
+public class ShardedRedBlackTreeTest {
+
+    private static final int THREADS = 4;
+    private static final int OPERATIONS = 50000;
+    private static final int KEYS = 100000;
+
+    public static void main(String[] args) throws Exception {
+        checkAutomaticRebalance();
+        checkRebalanceAfterRemove();
+        checkConcurrent();
+        System.out.println("ShardedRedBlackTree check finished.");
+    }
+
+    /**
+     * 分割点为 0，升序插入的非负 key 全部进入分片 1，分片 1 超过分片 0 的 2 倍时应该重新平衡
+     */
+    private static void checkAutomaticRebalance() {
+        ShardedRedBlackTree<Integer> set = new ShardedRedBlackTree<>(new Integer[]{0});
+        int n = 20000;
+        for (int i = 0; i < n; i++)
+            RedBlackTreeTest.check(set.add(i), "add " + i);
+
+        int split = set.splits()[0];
+        RedBlackTreeTest.check(split > 0, "split point did not move: " + split);
+        // 最后一次检查之后最多又插入了 63 个 key
+        int small = Math.min(split, n - split);
+        int large = Math.max(split, n - split);
+        RedBlackTreeTest.check(large <= 2 * small + 64, "shards " + split + " and " + (n - split) + " are still skewed");
+        RedBlackTreeTest.check(set.size() == n && set.range(0, n).size() == n, "size after rebalance");
+        for (int i = 0; i < n; i += 97)
+            RedBlackTreeTest.check(set.contains(i) && !set.add(i), "contains " + i);
+    }
+
+    /**
+     * 4 个分片各有 4000 个 key，删除分片 1 到 3 的所有 key，分片 0 没有任何插入，删除之后它相对变大，应该重新平衡
+     */
+    private static void checkRebalanceAfterRemove() {
+        Integer[] splits = {4000, 8000, 12000};
+        ShardedRedBlackTree<Integer> set = new ShardedRedBlackTree<>(splits);
+        for (int i = 0; i < 4000; i++) {
+            for (int shard = 0; shard < 4; shard++)
+                set.add(shard * 4000 + i);
+        }
+        RedBlackTreeTest.check(Arrays.equals(set.splits(), splits), "rebalanced while the shards are even");
+
+        for (int i = 4000; i < 16000; i++)
+            RedBlackTreeTest.check(set.remove(i), "remove " + i);
+        Integer[] after = set.splits();
+        RedBlackTreeTest.check(!Arrays.equals(after, splits), "not rebalanced after removes");
+        // 最后一次检查之后最多又删除了 63 个 key，最大的分片不超过其余分片平均值的 2 倍太多
+        int[] sizes = new int[after.length + 1];
+        for (int i = 0; i <= after.length; i++) {
+            int lo = i == 0 ? Integer.MIN_VALUE : after[i - 1];
+            int hi = i == after.length ? Integer.MAX_VALUE : after[i] - 1;
+            sizes[i] = set.range(lo, hi).size();
+        }
+        int largest = Arrays.stream(sizes).max().getAsInt();
+        RedBlackTreeTest.check(largest <= 2.0 * (4000 - largest) / 3 + 64, "shards " + Arrays.toString(sizes) + " are still skewed");
+        RedBlackTreeTest.check(set.size() == 4000 && set.range(0, 16000).size() == 4000, "size after rebalance");
+    }
+
+    private static void checkConcurrent() throws Exception {
+        Integer[] splits = {KEYS / 4, KEYS / 2, KEYS * 3 / 4};
+        ShardedRedBlackTree<Integer> set = new ShardedRedBlackTree<>(splits, 1.5);
+        List<TreeSet<Integer>> expected = new ArrayList<>();
+        List<Thread> workers = new ArrayList<>();
+        List<Throwable> errors = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            TreeSet<Integer> own = new TreeSet<>();
+            expected.add(own);
+            int thread = t;
+            workers.add(new Thread(() -> {
+                try {
+                    run(set, thread, own);
+                } catch (Throwable e) {
+                    synchronized (errors) {
+                        errors.add(e);
+                    }
+                }
+            }));
+        }
+
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicInteger rebalances = new AtomicInteger();
+        Thread rebalancer = new Thread(() -> {
+            while (!done.get()) {
+                set.rebalance();
+                rebalances.incrementAndGet();
+                Thread.yield();
+            }
+        });
+
+        workers.forEach(Thread::start);
+        rebalancer.start();
+        for (Thread w : workers)
+            w.join();
+        done.set(true);
+        rebalancer.join();
+        RedBlackTreeTest.check(errors.isEmpty(), "errors " + errors);
+
+        TreeSet<Integer> all = new TreeSet<>();
+        expected.forEach(all::addAll);
+        List<Integer> keys = new ArrayList<>();
+        set.forEach(keys::add);
+        RedBlackTreeTest.check(keys.equals(new ArrayList<>(all)), "keys after concurrent updates");
+        RedBlackTreeTest.check(set.size() == all.size(), "size " + set.size() + " != " + all.size());
+        RedBlackTreeTest.check(!Arrays.equals(set.splits(), splits), "split points never changed");
+        System.out.printf("%d keys, %d rebalances during updates%n", all.size(), rebalances.get());
+    }
+
+    private static void run(ShardedRedBlackTree<Integer> set, int thread, TreeSet<Integer> own) {
+        Random random = new Random(thread);
+        for (int i = 0; i < OPERATIONS; i++) {
+            // 偏向较小的 key，让分片倾斜，触发重新平衡
+            int key = (random.nextBoolean() ? random.nextInt(KEYS / 8) : random.nextInt(KEYS)) / THREADS * THREADS + thread;
+            int op = random.nextInt(8);
+            if (op < 4) {
+                RedBlackTreeTest.check(set.add(key) == own.add(key), "add " + key);
+            } else if (op < 6) {
+                RedBlackTreeTest.check(set.remove(key) == own.remove(key), "remove " + key);
+            } else if (op == 6) {
+                RedBlackTreeTest.check(set.contains(key) == own.contains(key), "contains " + key);
+            } else {
+                int lo = random.nextInt(KEYS);
+                int hi = lo + random.nextInt(KEYS / 10);
+                List<Integer> range = set.range(lo, hi);
+                List<Integer> mine = new ArrayList<>();
+                for (int j = 0; j < range.size(); j++) {
+                    int k = range.get(j);
+                    RedBlackTreeTest.check(k >= lo && k <= hi, "key " + k + " out of range");
+                    RedBlackTreeTest.check(j == 0 || range.get(j - 1) < k, "range is not ascending at " + k);
+                    if (k % THREADS == thread)
+                        mine.add(k);
+                }
+                RedBlackTreeTest.check(mine.equals(new ArrayList<>(own.subSet(lo, true, hi, true))), "range [" + lo + ", " + hi + "]");
+            }
+        }
+    }
+
+}
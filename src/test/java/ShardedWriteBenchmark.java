@@ -0,0 +1,89 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 对比多个线程修改一棵加写锁的红黑树和修改 {@link ShardedRedBlackTree} 的吞吐量，观察写操作随线程数的扩展。
+ *
+ * <pre>
+ * java -Xmx2g -cp target/classes:target/test-classes ShardedWriteBenchmark
+ * </pre>
+ *
+ * 两种方式先插入相同的 n 个随机 key，分片集合按 key 的分位数分成 SHARDS 个分片。每个线程做随机的插入和删除，各占一半。
+ * 只有一把锁时所有写操作串行，分片之后不同分片上的写操作可以并行，线程数不超过 CPU 核数时吞吐量应该随线程数增加。
+ * 单核机器上只能看出分片本身的开销 (路由、LongAdder 和检查 layout)。
+ */
+public class ShardedWriteBenchmark {
+
+    private static final int SIZE = 1_000_000;
+    private static final int OPERATIONS_PER_THREAD = 1_000_000;
+    private static final int[] THREADS = {1, 2, 4, 8};
+    private static final int SHARDS = 16;
+
+    public static void main(String[] args) throws Exception {
+        System.out.printf("cpus: %d, shards: %d%n", Runtime.getRuntime().availableProcessors(), SHARDS);
+        System.out.printf("%8s %18s %18s%n", "threads", "write lock ops/us", "sharded ops/us");
+        for (int threads : THREADS) {
+            double locked = run(threads, false);
+            double sharded = run(threads, true);
+            System.out.printf("%8d %18.2f %18.2f%n", threads, locked, sharded);
+        }
+    }
+
+    private static double run(int threads, boolean sharding) throws Exception {
+        Random random = new Random(SIZE);
+        RedBlackTree<Integer> tree = new RedBlackTree<>();
+        for (int i = 0; i < SIZE; i++)
+            tree.insert(random.nextInt());
+
+        Integer[] splits = new Integer[SHARDS - 1];
+        for (int i = 1; i < SHARDS; i++)
+            splits[i - 1] = (int) (Integer.MIN_VALUE + (1L << 32) * i / SHARDS);
+        ShardedRedBlackTree<Integer> set = null;
+        if (sharding) {
+            set = new ShardedRedBlackTree<>(splits);
+            for (RedBlackTree.Node<Integer> p = tree.getFirstNode(); p != null; p = tree.next(p))
+                set.add(p.key);
+            tree = null;
+        }
+
+        ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        RedBlackTree<Integer> locked = tree;
+        ShardedRedBlackTree<Integer> shards = set;
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Random r = new Random(t);
+            workers.add(new Thread(() -> {
+                for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                    int key = r.nextInt();
+                    boolean insert = r.nextBoolean();
+                    if (sharding) {
+                        if (insert)
+                            shards.add(key);
+                        else
+                            shards.remove(key);
+                    } else {
+                        lock.writeLock().lock();
+                        try {
+                            if (insert)
+                                locked.add(key);
+                            else
+                                locked.remove(key);
+                        } finally {
+                            lock.writeLock().unlock();
+                        }
+                    }
+                }
+            }));
+        }
+
+        long start = System.nanoTime();
+        workers.forEach(Thread::start);
+        for (Thread w : workers)
+            w.join();
+        long elapsed = System.nanoTime() - start;
+        return (double) threads * OPERATIONS_PER_THREAD * 1000 / elapsed;
+    }
+
+}
@@ -0,0 +1,72 @@
+import java.util.Random;
+import java.util.function.Predicate;
+
+/**
+ * 对比 {@code RedBlackTree<String>} 和 {@link StringRedBlackTree} 的查找吞吐量。
+ *
+ * <pre>
+ * java -Xmx2g -cp target/classes:target/test-classes StringLookupBenchmark
+ * </pre>
+ *
+ * 两组 key：随机的 8 个小写字母，大多数层的前缀就能区分；"user-" 加随机数字，前 4 个字符都相同，
+ * 每一层都要回退到 {@link String#compareTo}，是前缀比较的最坏情况。查找的 key 一半存在一半不存在，
+ * 是新建的字符串对象，和树中的 key 不是同一个对象。
+ */
+public class StringLookupBenchmark {
+
+    private static final int[] SIZES = {1_000, 100_000, 1_000_000};
+    private static final int LOOKUPS = 2_000_000;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) {
+        System.out.printf("%-22s %-8s %10s %14s%n", "tree", "keys", "size", "lookups/us");
+        for (int size : SIZES) {
+            for (boolean sharedPrefix : new boolean[]{false, true}) {
+                Random random = new Random(size);
+                String[] keys = new String[size];
+                for (int i = 0; i < size; i++)
+                    keys[i] = randomKey(random, sharedPrefix);
+                String[] lookups = new String[LOOKUPS];
+                for (int i = 0; i < LOOKUPS; i++)
+                    lookups[i] = random.nextBoolean() ? new String(keys[random.nextInt(size)]) : randomKey(random, sharedPrefix);
+
+                RedBlackTree<String> tree = new RedBlackTree<>();
+                StringRedBlackTree stringTree = new StringRedBlackTree();
+                for (String key : keys) {
+                    tree.insert(key);
+                    stringTree.insert(key);
+                }
+
+                String name = sharedPrefix ? "user-N" : "random";
+                run("RedBlackTree<String>", name, size, lookups, key -> tree.search(key) != null);
+                run("StringRedBlackTree", name, size, lookups, key -> stringTree.search(key) != null);
+            }
+            System.out.println();
+        }
+    }
+
+    private static void run(String tree, String keys, int size, String[] lookups, Predicate<String> contains) {
+        long best = Long.MAX_VALUE;
+        int found = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            found = 0;
+            for (String key : lookups) {
+                if (contains.test(key))
+                    found++;
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.printf("%-22s %-8s %10d %14.2f   (found %d)%n", tree, keys, size, lookups.length * 1000.0 / best, found);
+    }
+
+    private static String randomKey(Random random, boolean sharedPrefix) {
+        if (sharedPrefix)
+            return "user-" + random.nextInt(Integer.MAX_VALUE);
+        char[] chars = new char[8];
+        for (int i = 0; i < chars.length; i++)
+            chars[i] = (char) ('a' + random.nextInt(26));
+        return new String(chars);
+    }
+
+}
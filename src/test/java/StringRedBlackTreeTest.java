@@ -0,0 +1,71 @@
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+/**
+ * 用随机字符串对比 {@link StringRedBlackTree} 和 {@link TreeSet}。字符从一个很小的字符集中选取，包括 0x0000、
+ * 0x7FFF、0x8000 和 0xFFFF，长度 0 到 6，大量的 key 前 4 个字符相同或者不足 4 个字符，
+ * 覆盖前缀相同时回退到 {@link String#compareTo} 以及前缀按无符号数比较的情况。
+ *
+ * 同时用同样的操作检查使用比较器的 {@link RedBlackTree}。
+ */
+public class StringRedBlackTreeTest {
+
+    private static final char[] CHARS = {'\u0000', '\u0001', 'a', 'b', '\u7fff', '\u8000', '\uffff'};
+
+    public static void main(String[] args) {
+        Random random = new Random(2019);
+        check(new StringRedBlackTree(), new TreeSet<>(), random);
+        check(new RedBlackTree<>(Comparator.reverseOrder()), new TreeSet<>(Comparator.reverseOrder()), random);
+        check(new RedBlackTree<>(String.CASE_INSENSITIVE_ORDER), new TreeSet<>(String.CASE_INSENSITIVE_ORDER), random);
+
+        RedBlackTreeTest.check(Long.compareUnsigned(StringRedBlackTree.prefixOf("\u8000"), StringRedBlackTree.prefixOf("\u7fff")) > 0, "unsigned prefix");
+        RedBlackTreeTest.check(StringRedBlackTree.prefixOf("ab") == StringRedBlackTree.prefixOf("ab\u0000"), "short key padded with 0");
+        System.out.println("StringRedBlackTree and comparator check finished.");
+    }
+
+    private static void check(RedBlackTree<String> tree, TreeSet<String> expected, Random random) {
+        for (int round = 0; round < 50000; round++) {
+            String key = randomString(random);
+            int op = random.nextInt(4);
+            if (op == 0) {
+                RedBlackTreeTest.check((tree.remove(key) != null) == expected.remove(key), "remove " + escape(key));
+            } else if (op == 1) {
+                RedBlackTree.Node<String> node = tree.search(key);
+                RedBlackTreeTest.check((node != null) == expected.contains(key), "search " + escape(key));
+                RedBlackTreeTest.check(node == null || tree.compare(node.key, key) == 0, "search " + escape(key) + " found " + escape(node == null ? null : node.key));
+            } else {
+                RedBlackTreeTest.check(tree.add(key) == expected.add(key), "add " + escape(key));
+            }
+
+            if (round % 500 == 0) {
+                RedBlackTreeTest.checkInvariants(tree);
+                List<String> keys = new ArrayList<>();
+                for (RedBlackTree.Node<String> p = tree.getFirstNode(); p != null; p = tree.next(p)) {
+                    keys.add(p.key);
+                    if (p instanceof StringRedBlackTree.StringNode)
+                        RedBlackTreeTest.check(((StringRedBlackTree.StringNode) p).prefix == StringRedBlackTree.prefixOf(p.key), "prefix of " + escape(p.key));
+                }
+                RedBlackTreeTest.check(keys.equals(new ArrayList<>(expected)), "keys in order");
+            }
+        }
+    }
+
+    private static String randomString(Random random) {
+        char[] chars = new char[random.nextInt(7)];
+        for (int i = 0; i < chars.length; i++)
+            chars[i] = CHARS[random.nextInt(CHARS.length)];
+        return new String(chars);
+    }
+
+    private static String escape(String s) {
+        if (s == null) return "null";
+        StringBuilder sb = new StringBuilder();
+        for (char c : s.toCharArray())
+            sb.append(String.format("\\u%04x", (int) c));
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,75 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * 测量 {@link TraceRecorder} 给每个操作增加的时间：同一组查找分别直接调用红黑树和通过 recorder 调用，两者时间之差除以操作数。
+ *
+ * <pre>
+ * java -cp target/classes:target/test-classes TraceRecorderBenchmark
+ * </pre>
+ *
+ * 树很小 (1000 个 key)，查找本身很快，开销占的比例最明显。相邻查找的 key 是随机的，key 的差值大多要 2 到 3 个字节，
+ * 记录时间间隔时每次还要调用一次 {@link System#nanoTime()}。
+ */
+public class TraceRecorderBenchmark {
+
+    private static final int SIZE = 1_000;
+    private static final int OPERATIONS = 10_000_000;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) throws IOException {
+        Random random = new Random(SIZE);
+        RedBlackTree<Integer> tree = new RedBlackTree<>();
+        for (int i = 0; i < SIZE; i++)
+            tree.insert(random.nextInt(SIZE * 100));
+        Integer[] keys = new Integer[OPERATIONS];
+        for (int i = 0; i < OPERATIONS; i++)
+            keys[i] = random.nextInt(SIZE * 100);
+
+        Path path = Files.createTempFile("trace", ".bin");
+        try {
+            long direct = Long.MAX_VALUE;
+            long untimed = Long.MAX_VALUE;
+            long timed = Long.MAX_VALUE;
+            for (int round = 0; round < ROUNDS; round++) {
+                long start = System.nanoTime();
+                int found = 0;
+                for (Integer key : keys) {
+                    if (tree.search(key) != null)
+                        found++;
+                }
+                direct = Math.min(direct, System.nanoTime() - start);
+                untimed = Math.min(untimed, record(tree, keys, false, path, found));
+                timed = Math.min(timed, record(tree, keys, true, path, found));
+            }
+
+            System.out.printf("direct search:           %6.1f ns/op%n", (double) direct / OPERATIONS);
+            System.out.printf("recorded without timing: %6.1f ns/op (+%.1f)%n", (double) untimed / OPERATIONS, (double) (untimed - direct) / OPERATIONS);
+            System.out.printf("recorded with timing:    %6.1f ns/op (+%.1f)%n", (double) timed / OPERATIONS, (double) (timed - direct) / OPERATIONS);
+            System.out.printf("trace file size: %d bytes, %.2f bytes/op%n", Files.size(path), (double) Files.size(path) / OPERATIONS);
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    /**
+     * 包括把最后一个缓冲区写入文件的时间
+     */
+    private static long record(RedBlackTree<Integer> tree, Integer[] keys, boolean timing, Path path, int expected) throws IOException {
+        long start = System.nanoTime();
+        int found = 0;
+        try (TraceRecorder<Integer> recorder = new TraceRecorder<>(tree, Integer::longValue, timing, path)) {
+            for (Integer key : keys) {
+                if (recorder.search(key) != null)
+                    found++;
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        if (found != expected)
+            throw new AssertionError("found " + found + " instead of " + expected);
+        return elapsed;
+    }
+
+}
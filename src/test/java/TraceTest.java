@@ -0,0 +1,86 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 随机记录一组操作再回放，检查回放出的操作和 key 与记录时完全相同。key 有一部分取 {@link Long#MIN_VALUE}、
+ * {@link Long#MAX_VALUE} 等极端值，相邻 key 的差值会溢出，检查 zigzag 编码在溢出时也能还原；操作数足够多，
+ * 文件跨越很多个 64 KB 的缓冲区，检查记录被缓冲区边界截断时回放的重新填充。
+ */
+public class TraceTest {
+
+    private static final long[] EXTREMES = {Long.MIN_VALUE, Long.MAX_VALUE, 0, -1, 1, Long.MIN_VALUE + 1, Long.MAX_VALUE - 1};
+
+    public static void main(String[] args) throws IOException {
+        Path path = Files.createTempFile("trace", ".bin");
+        try {
+            for (boolean timed : new boolean[]{false, true}) {
+                Random random = new Random(2019);
+                List<String> recorded = new ArrayList<>();
+                try (TraceRecorder<Long> recorder = new TraceRecorder<Long>(new RedBlackTree<>(), Long::longValue, timed, path)) {
+                    for (int i = 0; i < 300_000; i++) {
+                        long key = randomKey(random);
+                        int op = random.nextInt(3);
+                        if (op == 0)
+                            recorder.insert(key);
+                        else if (op == 1)
+                            recorder.remove(key);
+                        else
+                            recorder.search(key);
+                        recorded.add(op + " " + key);
+                    }
+                }
+                RedBlackTreeTest.check(Files.size(path) > 20 * 64 * 1024, "trace spans too few buffers");
+
+                List<String> replayed = new ArrayList<>();
+                long count = TraceReplayer.replay(path, new TraceReplayer.Target() {
+                    @Override
+                    public void insert(long key) {
+                        replayed.add("0 " + key);
+                    }
+
+                    @Override
+                    public void remove(long key) {
+                        replayed.add("1 " + key);
+                    }
+
+                    @Override
+                    public void search(long key) {
+                        replayed.add("2 " + key);
+                    }
+                }, false);
+                RedBlackTreeTest.check(count == recorded.size(), "replayed " + count + " of " + recorded.size() + " operations");
+                for (int i = 0; i < recorded.size(); i++)
+                    RedBlackTreeTest.check(recorded.get(i).equals(replayed.get(i)), "operation " + i + ": " + recorded.get(i) + " replayed as " + replayed.get(i));
+
+                try {
+                    TraceReplayer.replay(path, TraceReplayer.of(new RedBlackTree<Long>(), k -> k), true);
+                    RedBlackTreeTest.check(timed, "timing replayed from a trace without timing");
+                } catch (IllegalArgumentException e) {
+                    RedBlackTreeTest.check(!timed, "trace with timing rejected");
+                }
+                System.out.printf("trace of %d operations (timed: %s, %d bytes) replayed.%n", count, timed, Files.size(path));
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    /**
+     * 极端值、相邻的小差值和完全随机的 long 混合，varint 的长度从 1 字节到 10 字节都会出现
+     */
+    private static long randomKey(Random random) {
+        switch (random.nextInt(3)) {
+            case 0:
+                return EXTREMES[random.nextInt(EXTREMES.length)];
+            case 1:
+                return random.nextInt(100);
+            default:
+                return random.nextLong();
+        }
+    }
+
+}